@@ -1,15 +1,29 @@
 package yfrp.autobili;
 
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import yfrp.autobili.comment.CommentWorker;
 import yfrp.autobili.config.Config;
+import yfrp.autobili.util.BackoffController;
 import yfrp.autobili.util.ChromeUtil;
+import yfrp.autobili.util.LoginSession;
+import yfrp.autobili.util.VirtualThreads;
 import yfrp.autobili.vid.SearchWorker;
 import yfrp.autobili.vid.VidPool;
 
 import java.io.IOException;
-import java.util.concurrent.CountDownLatch;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
@@ -25,15 +39,37 @@ public class AutoBili {
     // 已评论视频池，记录已经评论过的视频ID，避免重复评论
     private static final VidPool BVIDS_COMMENTED = new VidPool("bvids_commented.txt");
 
+    // 风控退避状态文件
+    private static final Path BACKOFF_FILE = Path.of("backoff.json");
+    // 运行检查点文件
+    private static final Path CHECKPOINT_FILE = Path.of("checkpoint.json");
+
     // 标志服务是否正在关闭
     private final AtomicBoolean isShuttingDown = new AtomicBoolean(false);
 
-    // 评论工作线程相关
+    // 配置重载间隔
+    private static final Duration RELOAD_INTERVAL = Duration.ofSeconds(10);
+    // 调度状态日志间隔
+    private static final Duration STATUS_INTERVAL = Duration.ofMinutes(10);
+    // 关闭时等待进行中任务的宽限时间，在单个视频的处理时限之外额外等待的时间
+    private static final Duration SHUTDOWN_GRACE_SLACK = Duration.ofSeconds(10);
+    // 运行检查点保存间隔
+    private static final Duration CHECKPOINT_INTERVAL = Duration.ofMinutes(1);
+
+    // 任务名称，同时作为检查点中的键
+    private static final String TASK_COMMENT = "评论";
+    private static final String TASK_SEARCH = "搜索";
+
+    // 评论工作器
     private final CommentWorker commentWorker;
-    private final Thread commentThread;
-    // 搜索工作线程相关
+    // 搜索工作器
     private final SearchWorker searchWorker;
-    private final Thread searchThread;
+    // 定时任务调度器
+    private final TickScheduler scheduler = new TickScheduler();
+    // 风控退避控制器，搜索与评论共用
+    private final BackoffController backoff;
+    // 评论账号的登录会话
+    private final LoginSession login;
 
     // 系统配置
     private final Config config;
@@ -48,21 +84,30 @@ public class AutoBili {
     public AutoBili(Config config) {
         this.config = config;
 
+        // 设置浏览器共享模式、页面加载策略与 BiDi，需在创建工作器之前完成
+        ChromeUtil.setSharedMode(config.isSharedBrowser());
+        ChromeUtil.setPageLoad(config.getPageLoadStrategy(), config.getPageLoadTimeout());
+        ChromeUtil.setBiDi(config.isBiDi());
+
+        this.login = new LoginSession(config.getUrlHomepage());
+
+        // 恢复上次运行未结束的风控退避
+        this.backoff = new BackoffController(BACKOFF_FILE, () -> Duration.ofSeconds(config.getCommentCooldown()));
+        this.backoff.load();
+
         // 初始化评论工作器
         this.commentWorker = new CommentWorker(
                 config,
                 config.autoCommentInstance(),
                 BVIDS_TO_COMMENT,
-                BVIDS_COMMENTED
+                BVIDS_COMMENTED,
+                backoff,
+                login
         );
-        this.commentThread = new Thread(commentWorker, "Comment-Worker");
 
         // 根据配置决定是否启用搜索功能
         this.searchWorker = config.isSearchEnabled()
-                            ? new SearchWorker(config, BVIDS_TO_COMMENT, BVIDS_COMMENTED)
-                            : null;
-        this.searchThread = searchWorker != null
-                            ? new Thread(searchWorker, "Search-Worker")
+                            ? new SearchWorker(config, BVIDS_TO_COMMENT, BVIDS_COMMENTED, backoff)
                             : null;
 
         // 注册 JVM 关闭钩子，确保程序优雅退出
@@ -98,41 +143,237 @@ public class AutoBili {
         // 执行初始化
         initialize();
 
+        // 工作器运行在虚拟线程中，不会阻止 JVM 退出，主线程等待调度器关闭
+        try {
+            scheduler.awaitClose();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
     }
 
     /**
      * 初始化系统
      * <p>
-     * 加载视频列表，启动工作线程
+     * 分阶段并行执行：解析浏览器驱动后同时启动两个浏览器，同时加载视频列表；
+     * 每个工作器在其浏览器与视频列表就绪后立即开始调度，最后输出启动时间线。
+     * 存在运行检查点时从上次停止的位置继续：关键词顺序与位置、清理时间、流水线中的视频与下一轮的计划时间
      */
     private void initialize() {
         LOGGER.info("正在初始化...");
 
+        var startupStart = System.nanoTime();
+        var timeline = new ConcurrentLinkedQueue<StartupPhase>();
+
+        // 恢复关键词顺序与位置，须在搜索开始前完成
+        var checkpoint = loadCheckpoint();
+        if (checkpoint != null) {
+            config.setSeed(checkpoint.seed());
+            if (searchWorker != null) {
+                searchWorker.setKeywordIndex(checkpoint.keywordIndex());
+            }
+        }
+
+        try (var executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("Startup-", 0).factory())) {
+
+            var binaries = CompletableFuture.runAsync(
+                    timed("解析浏览器驱动", ChromeUtil::resolveBinaries, startupStart, timeline), executor);
+            var pools = CompletableFuture.runAsync(
+                    timed("加载视频列表", this::loadVideoPools, startupStart, timeline), executor);
+
+            // 开始调度评论任务
+            var comment = binaries
+                    .thenRunAsync(timed("启动评论浏览器", commentWorker::prepare, startupStart, timeline), executor)
+                    .thenCombine(pools, (_, _) -> null)
+                    .thenRun(() -> {
+                        if (checkpoint != null) {
+                            commentWorker.restore(checkpoint.lastClearTime(), checkpoint.pending());
+                        }
+                        scheduler.schedule(
+                                TASK_COMMENT,
+                                commentWorker::tick,
+                                () -> Duration.ofSeconds(config.getCommentInterval()),
+                                config::getCommentJitter,
+                                initialDelay(checkpoint, TASK_COMMENT, Duration.ofSeconds(config.getCommentInterval()))
+                        );
+                    });
+
+            // 如果启用了搜索功能，也开始调度搜索任务
+            var search = searchWorker == null
+                         ? pools
+                         : binaries
+                                 .thenRunAsync(timed("启动搜索浏览器", searchWorker::prepare, startupStart, timeline), executor)
+                                 .thenCombine(pools, (_, _) -> null)
+                                 .thenRun(() -> scheduler.schedule(
+                                         TASK_SEARCH,
+                                         searchWorker::tick,
+                                         () -> Duration.ofSeconds(config.getSearchInterval()),
+                                         config::getSearchJitter,
+                                         initialDelay(checkpoint, TASK_SEARCH, Duration.ofSeconds(config.getSearchInterval()))
+                                 ));
+
+            CompletableFuture.allOf(comment, search).join();
+
+        } catch (CompletionException e) {
+            // 加载失败时记录错误并抛出运行时异常
+            LOGGER.error("初始化时出错", e.getCause());
+            throw new RuntimeException("初始化失败", e.getCause());
+        }
+
+        // 输出启动时间线
+        var lines = new StringBuilder();
+        timeline.stream()
+                .sorted(Comparator.comparingLong(StartupPhase::startMs))
+                .forEach(p -> lines.append(String.format("%n  %-10s +%6dms → +%6dms (%dms)",
+                        p.name(), p.startMs(), p.endMs(), p.endMs() - p.startMs())));
+        LOGGER.info("初始化完成，耗时 {}ms{}", (System.nanoTime() - startupStart) / 1_000_000, lines);
+
+        // 定期重载配置，间隔变化立即生效
+        scheduler.schedule("配置重载", this::reloadConfig, () -> RELOAD_INTERVAL, () -> 0);
+        // 定期输出调度状态
+        scheduler.schedule("状态", this::logStatus, () -> STATUS_INTERVAL, () -> 0);
+        // 定期保存运行检查点
+        scheduler.schedule("检查点", this::saveCheckpoint, () -> CHECKPOINT_INTERVAL, () -> 0, CHECKPOINT_INTERVAL);
+    }
+
+    /**
+     * 加载运行检查点
+     *
+     * @return 检查点，不存在或无法读取时返回 null
+     */
+    @Nullable
+    private Checkpoint loadCheckpoint() {
+        try {
+            var checkpoint = Checkpoint.load(CHECKPOINT_FILE);
+            if (checkpoint != null) {
+                LOGGER.info("已加载运行检查点：关键词位置 {}，流水线中的视频 {} 个",
+                        checkpoint.keywordIndex(), checkpoint.pending().size());
+            }
+            return checkpoint;
+        } catch (IOException e) {
+            LOGGER.warn("读取运行检查点失败，从头开始: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 保存运行检查点
+     */
+    private void saveCheckpoint() {
+        var nextTicks = new LinkedHashMap<String, Long>();
+        scheduler.nextRuns().forEach((name, time) -> nextTicks.put(name, time.toEpochMilli()));
+
+        var checkpoint = new Checkpoint(
+                config.getSeed(),
+                searchWorker != null ? searchWorker.getKeywordIndex() : 0,
+                commentWorker.getLastClearTime(),
+                nextTicks,
+                commentWorker.getPendingVideos()
+        );
+        try {
+            checkpoint.save(CHECKPOINT_FILE);
+        } catch (IOException e) {
+            LOGGER.error("保存运行检查点失败", e);
+        }
+    }
+
+    /**
+     * 计算任务第一轮的延迟，从上次运行计划的下一轮时间继续
+     *
+     * @param checkpoint 运行检查点，可为 null
+     * @param task       任务名称
+     * @param interval   任务间隔，延迟不超过该值
+     * @return 第一轮的延迟，无记录或已过期时为 0
+     */
+    private static Duration initialDelay(@Nullable Checkpoint checkpoint,
+                                         String task,
+                                         Duration interval) {
+
+        var next = checkpoint != null ? checkpoint.nextTicks().get(task) : null;
+        if (next == null) {
+            return Duration.ZERO;
+        }
+
+        var delay = Duration.ofMillis(next - System.currentTimeMillis());
+        if (delay.isNegative()) {
+            return Duration.ZERO;
+        }
+        return delay.compareTo(interval) > 0 ? interval : delay;
+    }
+
+    /**
+     * 输出调度状态、风控退避状态与虚拟线程调度器状态
+     */
+    private void logStatus() {
+        LOGGER.info("调度状态 | {} | {} | {} | {}",
+                scheduler.describe(),
+                login.describe(),
+                backoff.describe(),
+                VirtualThreads.describe()
+        );
+    }
+
+    /**
+     * 重载配置并按新的间隔重新计划任务
+     */
+    private void reloadConfig() {
+        config.loadConfig();
+        scheduler.refresh();
+    }
+
+    /**
+     * 从文件加载待评论和已评论的视频列表
+     */
+    private void loadVideoPools() {
         try {
-            // 从文件加载待评论和已评论的视频列表
             BVIDS_TO_COMMENT.loadVideos(null);
             BVIDS_COMMENTED.loadVideos(CommentWorker::upgradeCommentedLine);
             LOGGER.info("已加载视频列表 | 待评论: {}, 已处理: {}",
                     BVIDS_TO_COMMENT.size(), BVIDS_COMMENTED.size());
         } catch (IOException e) {
-            // 加载失败时记录错误并抛出运行时异常
-            LOGGER.error("加载视频列表时出错", e);
-            throw new RuntimeException("初始化失败", e);
+            throw new UncheckedIOException("加载视频列表时出错", e);
         }
+    }
 
-        // 启动评论工作线程
-        this.commentThread.start();
-        // 如果启用了搜索功能，也启动搜索工作线程
-        if (searchThread != null) {
-            searchThread.start();
-        }
+    /**
+     * 启动阶段
+     *
+     * @param name    阶段名称
+     * @param startMs 相对启动开始的开始时间（毫秒）
+     * @param endMs   相对启动开始的结束时间（毫秒）
+     */
+    private record StartupPhase(String name,
+                                long startMs,
+                                long endMs) {
+    }
 
+    /**
+     * 包装启动任务，记录其在启动时间线中的开始与结束时间
+     *
+     * @param name         阶段名称
+     * @param task         启动任务
+     * @param startupStart 启动开始时间（纳秒）
+     * @param timeline     启动时间线
+     * @return 包装后的任务
+     */
+    private static Runnable timed(String name,
+                                  Runnable task,
+                                  long startupStart,
+                                  Queue<StartupPhase> timeline) {
+        return () -> {
+            var start = (System.nanoTime() - startupStart) / 1_000_000;
+            try {
+                task.run();
+            } finally {
+                timeline.add(new StartupPhase(name, start, (System.nanoTime() - startupStart) / 1_000_000));
+            }
+        };
     }
 
     /**
      * 关闭系统
      * <p>
-     * 停止所有服务和线程，确保资源正确释放
+     * 分阶段关闭：停止接收新任务 → 在宽限时间内等待进行中的任务结束 → 写入视频列表与运行检查点 → 关闭浏览器，
+     * 并输出各阶段耗时。宽限时间为单个视频的处理时限加上 SHUTDOWN_GRACE_SLACK，进行中的评论通常可以完成
      */
     private void shutdown() {
 
@@ -142,31 +383,76 @@ public class AutoBili {
         }
 
         LOGGER.info("准备关闭服务...");
+        var phaseStart = System.nanoTime();
 
-        // 关闭搜索工作器
+        // 停止接收：工作器不再开始新的一轮，调度器取消尚未开始的轮次
         if (searchWorker != null) {
-            searchWorker.shutdown();
+            searchWorker.stopAccepting();
         }
-        // 关闭评论工作器
         if (commentWorker != null) {
-            commentWorker.shutdown();
+            commentWorker.stopAccepting();
         }
+        scheduler.stop();
+        var stopMs = lap(phaseStart);
 
-        // 等待工作线程结束，最多等待 2s
-        try {
-            if (searchThread != null) {
-                searchThread.join(2000);
-            }
-            if (commentThread != null) {
-                commentThread.join(2000);
-            }
-        } catch (InterruptedException e) {
-            // 如果等待被中断，恢复中断状态
-            Thread.currentThread().interrupt();
+        // 排空：等待进行中的搜索与评论结束，超时则中断
+        phaseStart = System.nanoTime();
+        var drained = scheduler.drain(config.getCommentDeadline().plus(SHUTDOWN_GRACE_SLACK));
+        var drainMs = lap(phaseStart);
+
+        // 写入：保存流水线中已完成的结果、视频列表与运行检查点
+        phaseStart = System.nanoTime();
+        if (commentWorker != null) {
+            commentWorker.flush();
         }
+        flushVideoPools();
+        saveCheckpoint();
+        var flushMs = lap(phaseStart);
 
+        // 关闭浏览器，先停止使用评论浏览器的扫码登录
+        phaseStart = System.nanoTime();
+        login.close();
+        if (searchWorker != null) {
+            searchWorker.close();
+        }
+        if (commentWorker != null) {
+            commentWorker.close();
+        }
         ChromeUtil.cleanupAllDrivers();
+        var closeMs = lap(phaseStart);
+
+        // 唤醒主线程
+        scheduler.close();
 
-        LOGGER.info("服务已关闭\n\n");
+        LOGGER.info("服务已关闭：停止接收 {}ms，等待任务 {}ms{}，写入 {}ms，关闭浏览器 {}ms\n\n",
+                stopMs,
+                drainMs,
+                drained ? "" : "（超时中断）",
+                flushMs,
+                closeMs
+        );
+    }
+
+    /**
+     * 写入尚未保存的视频列表
+     */
+    private void flushVideoPools() {
+        for (var pool : List.of(BVIDS_TO_COMMENT, BVIDS_COMMENTED)) {
+            try {
+                pool.saveVideos();
+            } catch (RuntimeException e) {
+                LOGGER.error("保存视频列表时出错", e);
+            }
+        }
+    }
+
+    /**
+     * 计算阶段耗时
+     *
+     * @param phaseStart 阶段开始时间（纳秒）
+     * @return 阶段耗时（毫秒）
+     */
+    private static long lap(long phaseStart) {
+        return (System.nanoTime() - phaseStart) / 1_000_000;
     }
 }
@@ -0,0 +1,122 @@
+package yfrp.autobili;
+
+import org.jetbrains.annotations.Nullable;
+import org.openqa.selenium.json.Json;
+import org.openqa.selenium.json.JsonException;
+import yfrp.autobili.comment.PendingVideo;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 运行检查点
+ * <p>
+ * 保存重启后需要延续的运行状态，以带版本号的 JSON 格式写入 checkpoint.json。
+ * 风控退避状态由 backoff.json 单独保存
+ *
+ * @param seed          关键词随机化使用的随机数种子
+ * @param keywordIndex  下一个搜索关键词的索引
+ * @param lastClearTime 上次清理已处理视频记录的时间（秒）
+ * @param nextTicks     各任务下一轮的计划时间戳（毫秒）
+ * @param pending       评论流水线中尚未完成的视频
+ */
+record Checkpoint(long seed,
+                  int keywordIndex,
+                  long lastClearTime,
+                  Map<String, Long> nextTicks,
+                  List<PendingVideo> pending) {
+
+    // 存储格式版本
+    private static final int VERSION = 1;
+
+    private static final Json JSON = new Json();
+
+    /**
+     * 保存检查点
+     * <p>
+     * 先写入临时文件再替换，避免写入中断导致文件损坏
+     *
+     * @param file 检查点文件
+     * @throws IOException IO 异常
+     */
+    void save(Path file)
+            throws IOException {
+
+        var videos = new ArrayList<Map<String, Object>>();
+        for (var video : pending) {
+            videos.add(Map.of(
+                    "bvid", video.bvid(),
+                    "failures", video.failures(),
+                    "retryAt", video.retryAt()
+            ));
+        }
+
+        var root = new LinkedHashMap<String, Object>();
+        root.put("version", VERSION);
+        root.put("seed", seed);
+        root.put("keywordIndex", keywordIndex);
+        root.put("lastClearTime", lastClearTime);
+        root.put("nextTicks", nextTicks);
+        root.put("pending", videos);
+
+        var tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.writeString(tmp, JSON.toJson(root), StandardCharsets.UTF_8);
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * 加载检查点
+     *
+     * @param file 检查点文件
+     * @return 检查点，文件不存在时返回 null
+     * @throws IOException IO 异常或文件格式错误
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    static Checkpoint load(Path file)
+            throws IOException {
+
+        if (Files.notExists(file)) {
+            return null;
+        }
+
+        try {
+            Map<String, Object> root = JSON.toType(Files.readString(file, StandardCharsets.UTF_8), Json.MAP_TYPE);
+            if (!(root.get("version") instanceof Number version) || version.intValue() > VERSION) {
+                throw new IOException("不支持的检查点文件版本: " + root.get("version"));
+            }
+
+            var nextTicks = new LinkedHashMap<String, Long>();
+            ((Map<String, Number>) root.getOrDefault("nextTicks", Map.of()))
+                    .forEach((name, time) -> nextTicks.put(name, time.longValue()));
+
+            var pending = new ArrayList<PendingVideo>();
+            for (var map : (List<Map<String, Object>>) root.getOrDefault("pending", List.of())) {
+                pending.add(new PendingVideo(
+                        (String) map.get("bvid"),
+                        ((Number) map.getOrDefault("failures", 0)).intValue(),
+                        ((Number) map.getOrDefault("retryAt", 0)).longValue()
+                ));
+            }
+
+            return new Checkpoint(
+                    ((Number) root.get("seed")).longValue(),
+                    ((Number) root.getOrDefault("keywordIndex", 0)).intValue(),
+                    ((Number) root.getOrDefault("lastClearTime", 0)).longValue(),
+                    nextTicks,
+                    pending
+            );
+
+        } catch (JsonException | ClassCastException | NullPointerException e) {
+            throw new IOException("检查点文件格式错误", e);
+        }
+    }
+
+}
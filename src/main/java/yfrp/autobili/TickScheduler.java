@@ -0,0 +1,373 @@
+package yfrp.autobili;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * 定时任务调度器
+ * <p>
+ * 按固定节奏执行各工作器的单轮任务：下一轮的计划时间由上一轮的计划时间加上随机浮动后的间隔得出，
+ * 执行耗时不会累积为节奏漂移。单轮执行超过间隔时，下一轮立即执行一次，不会补执行错过的轮次。
+ * 间隔在配置重载后通过 {@link #refresh()} 立即生效，停止时取消尚未开始的轮次，可在宽限时间内等待进行中的轮次结束
+ * <p>
+ * 计时由一个平台线程负责，每轮任务在新的虚拟线程中执行，阻塞在浏览器或网络调用中时不占用载体线程
+ */
+public class TickScheduler implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TickScheduler.class);
+
+    // 中断进行中的轮次后等待其结束的最长时间
+    private static final Duration INTERRUPT_WAIT = Duration.ofSeconds(2);
+
+    // 计时线程，到达计划时间后将任务交给执行器
+    private final ScheduledThreadPoolExecutor timer;
+    // 任务执行器，每轮一个虚拟线程，同一任务的各轮之间串行执行
+    private final ExecutorService executor;
+    // 调度器关闭信号
+    private final CountDownLatch terminated = new CountDownLatch(1);
+    // 已注册的任务
+    private final List<Task> tasks = new CopyOnWriteArrayList<>();
+
+    // 调度器是否已关闭
+    private volatile boolean closed = false;
+
+    /**
+     * 构造函数
+     */
+    public TickScheduler() {
+        this.timer = new ScheduledThreadPoolExecutor(1, Thread.ofPlatform().name("Tick-Timer").daemon().factory());
+        this.timer.setRemoveOnCancelPolicy(true);
+        this.timer.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("Tick-", 0).factory());
+    }
+
+    /**
+     * 注册任务，立即执行第一轮
+     *
+     * @param name     任务名称
+     * @param tick     单轮任务
+     * @param interval 间隔，每轮计划时读取，可随配置变化
+     * @param jitter   间隔随机浮动的百分比，每轮计划时读取
+     */
+    public void schedule(String name,
+                         Runnable tick,
+                         Supplier<Duration> interval,
+                         IntSupplier jitter) {
+        schedule(name, tick, interval, jitter, Duration.ZERO);
+    }
+
+    /**
+     * 注册任务，延迟指定时间后执行第一轮
+     *
+     * @param name         任务名称
+     * @param tick         单轮任务
+     * @param interval     间隔，每轮计划时读取，可随配置变化
+     * @param jitter       间隔随机浮动的百分比，每轮计划时读取
+     * @param initialDelay 第一轮的延迟
+     */
+    public void schedule(String name,
+                         Runnable tick,
+                         Supplier<Duration> interval,
+                         IntSupplier jitter,
+                         Duration initialDelay) {
+
+        if (closed) {
+            throw new IllegalStateException("调度器已关闭");
+        }
+
+        var task = new Task(name, tick, interval, jitter);
+        tasks.add(task);
+        task.start(initialDelay);
+    }
+
+    /**
+     * 获取各任务下一轮的计划时间，用于保存运行检查点
+     *
+     * @return 任务名称 -> 下一轮的计划时间
+     */
+    public Map<String, Instant> nextRuns() {
+        var runs = new LinkedHashMap<String, Instant>();
+        tasks.forEach(task -> runs.put(task.name, task.nextRun()));
+        return runs;
+    }
+
+    /**
+     * 按当前配置重新计划尚未开始的轮次
+     * <p>
+     * 间隔变化的任务从上一轮的计划时间起按新间隔重新计算下一轮
+     */
+    public void refresh() {
+        tasks.forEach(Task::refresh);
+    }
+
+    /**
+     * 获取各任务的执行统计，用于状态日志
+     *
+     * @return 执行统计描述
+     */
+    public String describe() {
+        return tasks.stream()
+                .map(Task::describe)
+                .collect(Collectors.joining(" | "));
+    }
+
+    /**
+     * 等待调度器关闭
+     * <p>
+     * 任务均运行在虚拟线程中，不会阻止 JVM 退出，主线程需在此等待
+     *
+     * @throws InterruptedException 线程中断异常
+     */
+    public void awaitClose()
+            throws InterruptedException {
+        terminated.await();
+    }
+
+    /**
+     * 停止调度
+     * <p>
+     * 取消尚未开始的轮次，不再计划新的轮次，进行中的轮次继续执行
+     */
+    public void stop() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        tasks.forEach(Task::cancel);
+        timer.shutdownNow();
+        executor.shutdown();
+    }
+
+    /**
+     * 停止调度并等待进行中的轮次结束
+     * <p>
+     * 超过宽限时间仍未结束时中断这些轮次，再最多等待 INTERRUPT_WAIT
+     *
+     * @param grace 宽限时间
+     * @return 是否在宽限时间内全部结束
+     */
+    public boolean drain(Duration grace) {
+        stop();
+        try {
+            if (executor.awaitTermination(grace.toMillis(), TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+            LOGGER.warn("进行中的任务超过宽限时间 {}s 仍未结束，中断执行", grace.toSeconds());
+            executor.shutdownNow();
+            executor.awaitTermination(INTERRUPT_WAIT.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        return false;
+    }
+
+    /**
+     * 关闭调度器
+     * <p>
+     * 停止调度，最多等待 INTERRUPT_WAIT 让进行中的轮次结束，超时则中断，然后唤醒 {@link #awaitClose()}
+     */
+    @Override
+    public synchronized void close() {
+        if (terminated.getCount() == 0) {
+            return;
+        }
+
+        drain(INTERRUPT_WAIT);
+        LOGGER.info("调度器已关闭 | {}", describe());
+        terminated.countDown();
+    }
+
+    /**
+     * 调度任务
+     */
+    private final class Task {
+
+        // 任务名称
+        private final String name;
+        // 单轮任务
+        private final Runnable tick;
+        // 间隔
+        private final Supplier<Duration> interval;
+        // 间隔随机浮动的百分比
+        private final IntSupplier jitter;
+
+        // 上一轮的计划时间（纳秒）
+        private long lastPlanned;
+        // 下一轮的计划时间（纳秒）
+        private long nextPlanned;
+        // 计划下一轮时使用的间隔
+        private Duration plannedInterval;
+        // 下一轮的调度句柄
+        private ScheduledFuture<?> future;
+
+        // 已执行轮数
+        private long ticks = 0;
+        // 单轮执行超过间隔的次数
+        private long overruns = 0;
+        // 开始时间相对计划时间的延迟合计与最大值（纳秒）
+        private long totalLateness = 0;
+        private long maxLateness = 0;
+
+        Task(String name,
+             Runnable tick,
+             Supplier<Duration> interval,
+             IntSupplier jitter) {
+
+            this.name = name;
+            this.tick = tick;
+            this.interval = interval;
+            this.jitter = jitter;
+        }
+
+        /**
+         * 计划第一轮
+         *
+         * @param initialDelay 第一轮的延迟
+         */
+        synchronized void start(Duration initialDelay) {
+            nextPlanned = System.nanoTime() + initialDelay.toNanos();
+            lastPlanned = nextPlanned;
+            plannedInterval = interval.get();
+            future = timer.schedule(this::dispatch, initialDelay.toNanos(), TimeUnit.NANOSECONDS);
+        }
+
+        /**
+         * 获取下一轮的计划时间
+         * <p>
+         * 下一轮正在执行时为其开始前的计划时间
+         *
+         * @return 下一轮的计划时间
+         */
+        synchronized Instant nextRun() {
+            return Instant.now().plusNanos(nextPlanned - System.nanoTime());
+        }
+
+        /**
+         * 到达计划时间，在虚拟线程中执行一轮
+         */
+        private void dispatch() {
+            try {
+                executor.execute(this::run);
+            } catch (RejectedExecutionException _) {
+                // 调度器已关闭
+            }
+        }
+
+        /**
+         * 执行一轮并计划下一轮
+         */
+        private void run() {
+            var start = System.nanoTime();
+            synchronized (this) {
+                var lateness = Math.max(0, start - nextPlanned);
+                ticks++;
+                totalLateness += lateness;
+                maxLateness = Math.max(maxLateness, lateness);
+                lastPlanned = nextPlanned;
+            }
+
+            try {
+                tick.run();
+            } catch (Throwable e) {
+                LOGGER.error("任务 {} 异常", name, e);
+            }
+
+            planNext();
+        }
+
+        /**
+         * 从上一轮的计划时间起计划下一轮
+         */
+        private synchronized void planNext() {
+            if (closed) {
+                return;
+            }
+
+            plannedInterval = interval.get();
+            var now = System.nanoTime();
+            nextPlanned = lastPlanned + jittered(plannedInterval).toNanos();
+            if (nextPlanned < now) {
+                // 单轮执行超过间隔，立即执行下一轮，不补执行错过的轮次
+                overruns++;
+                LOGGER.debug("任务 {} 单轮执行超过间隔 {}ms", name, (now - lastPlanned) / 1_000_000);
+                nextPlanned = now;
+            }
+            future = timer.schedule(this::dispatch, nextPlanned - now, TimeUnit.NANOSECONDS);
+        }
+
+        /**
+         * 间隔变化时重新计划尚未开始的下一轮
+         */
+        synchronized void refresh() {
+            if (closed || future == null || interval.get().equals(plannedInterval)) {
+                return;
+            }
+            // 下一轮已开始执行时，结束后会按新间隔计划
+            if (future.cancel(false)) {
+                LOGGER.info("任务 {} 间隔已调整为 {}s", name, interval.get().toSeconds());
+                planNext();
+            }
+        }
+
+        /**
+         * 取消尚未开始的下一轮
+         */
+        synchronized void cancel() {
+            if (future != null) {
+                future.cancel(false);
+            }
+        }
+
+        /**
+         * 获取执行统计
+         *
+         * @return 执行统计描述
+         */
+        synchronized String describe() {
+            return "%s: %d 轮, 超时 %d 次, 平均延迟 %dms, 最大延迟 %dms".formatted(
+                    name,
+                    ticks,
+                    overruns,
+                    ticks == 0 ? 0 : totalLateness / ticks / 1_000_000,
+                    maxLateness / 1_000_000
+            );
+        }
+
+        /**
+         * 按浮动百分比随机调整间隔
+         *
+         * @param base 基础间隔
+         * @return 调整后的间隔
+         */
+        private Duration jittered(Duration base) {
+            var percent = Math.clamp(jitter.getAsInt(), 0, 100);
+            if (percent == 0) {
+                return base;
+            }
+            var factor = ThreadLocalRandom.current().nextDouble(1 - percent / 100.0, 1 + percent / 100.0);
+            return Duration.ofNanos((long) (base.toNanos() * factor));
+        }
+
+    }
+
+}
@@ -0,0 +1,158 @@
+package yfrp.autobili.browser;
+
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.bidi.browsingcontext.NavigationInfo;
+import org.openqa.selenium.bidi.log.ConsoleLogEntry;
+import org.openqa.selenium.bidi.module.BrowsingContextInspector;
+import org.openqa.selenium.bidi.module.LogInspector;
+import org.openqa.selenium.bidi.module.Network;
+import org.openqa.selenium.bidi.network.ResponseDetails;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * WebDriver BiDi 事件订阅
+ * <p>
+ * 通过驱动的 BiDi WebSocket 连接订阅日志、浏览上下文与网络事件：
+ * 页面脚本以带前缀的 console.debug 推送信号，代替 Java 端轮询
+ */
+class BiDiEvents {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BiDiEvents.class);
+
+    // 页面信号的日志前缀
+    static final String SIGNAL_PREFIX = "__autobili_signal:";
+
+    // 等待中的页面信号：信号编号 -> future
+    private final Map<String, CompletableFuture<Void>> signals = new ConcurrentHashMap<>();
+    // 进行中的导航：导航编号 -> 开始时间戳（毫秒）
+    private final Map<String, Long> navigations = new ConcurrentHashMap<>();
+
+    // 日志事件订阅
+    private final LogInspector logInspector;
+    // 浏览上下文事件订阅
+    private final BrowsingContextInspector contextInspector;
+    // 网络事件订阅
+    private final Network network;
+
+    /**
+     * 构造函数
+     * <p>
+     * 订阅须通过 {@link #close()} 取消，驱动退出、BiDi 连接关闭时也一并结束
+     *
+     * @param driver 已启用 BiDi 的 WebDriver 实例
+     */
+    BiDiEvents(WebDriver driver) {
+
+        logInspector = new LogInspector(driver);
+        logInspector.onConsoleEntry(this::onConsoleEntry);
+        logInspector.onJavaScriptException(e -> LOGGER.debug("页面脚本异常: {}", e.getText()));
+
+        contextInspector = new BrowsingContextInspector(driver);
+        contextInspector.onNavigationStarted(this::onNavigationStarted);
+        contextInspector.onDomContentLoaded(this::onDomContentLoaded);
+
+        network = new Network(driver);
+        network.onResponseCompleted(this::onResponseCompleted);
+    }
+
+    /**
+     * 取消事件订阅，等待中的页面信号以异常结束，由调用方回退到直接检查条件
+     * <p>
+     * 驱动已退出时取消订阅会失败，此时订阅已随连接结束，忽略异常
+     */
+    void close() {
+        for (AutoCloseable subscription : List.of(logInspector, contextInspector, network)) {
+            try {
+                subscription.close();
+            } catch (Exception e) {
+                LOGGER.debug("取消 BiDi 事件订阅失败: {}", e.getMessage());
+            }
+        }
+
+        var closed = new IllegalStateException("BiDi 事件订阅已取消");
+        signals.values().forEach(future -> future.completeExceptionally(closed));
+        signals.clear();
+        navigations.clear();
+    }
+
+    /**
+     * 等待页面推送指定编号的信号
+     *
+     * @param id 信号编号
+     * @return 收到信号时完成的 future
+     */
+    CompletableFuture<Void> nextSignal(String id) {
+        return signals.computeIfAbsent(id, _ -> new CompletableFuture<>());
+    }
+
+    /**
+     * 取消等待信号
+     *
+     * @param id 信号编号
+     */
+    void cancelSignal(String id) {
+        signals.remove(id);
+    }
+
+    /**
+     * 处理控制台日志，完成匹配的页面信号
+     *
+     * @param entry 控制台日志
+     */
+    private void onConsoleEntry(ConsoleLogEntry entry) {
+        var text = entry.getText();
+        if (text == null || !text.startsWith(SIGNAL_PREFIX)) {
+            return;
+        }
+
+        var future = signals.remove(text.substring(SIGNAL_PREFIX.length()));
+        if (future != null) {
+            future.complete(null);
+        }
+    }
+
+    /**
+     * 记录导航开始时间
+     *
+     * @param info 导航信息
+     */
+    private void onNavigationStarted(NavigationInfo info) {
+        if (info.getNavigationId() != null) {
+            // 中止的导航不会触发 DOM 解析完成事件，避免记录无限增长
+            if (navigations.size() > 64) {
+                navigations.clear();
+            }
+            navigations.put(info.getNavigationId(), info.getTimestamp());
+        }
+    }
+
+    /**
+     * 记录导航开始到 DOM 解析完成的耗时
+     *
+     * @param info 导航信息
+     */
+    private void onDomContentLoaded(NavigationInfo info) {
+        var started = info.getNavigationId() == null ? null : navigations.remove(info.getNavigationId());
+        if (started != null) {
+            LOGGER.debug("DOM 解析完成耗时 {}ms: {}", info.getTimestamp() - started, info.getUrl());
+        }
+    }
+
+    /**
+     * 记录被风控拦截的请求
+     *
+     * @param response 响应信息
+     */
+    private void onResponseCompleted(ResponseDetails response) {
+        if (response.getResponseData().getStatus() == 412) {
+            LOGGER.warn("请求被拦截 (412): {}", response.getRequest().getUrl());
+        }
+    }
+
+}
@@ -0,0 +1,131 @@
+package yfrp.autobili.browser;
+
+import org.jetbrains.annotations.Nullable;
+import org.openqa.selenium.Cookie;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 浏览器会话
+ * <p>
+ * 工作线程与浏览器交互的最小接口，使调度与持久化逻辑可以脱离真实浏览器运行和测量
+ */
+public interface BrowserSession {
+
+    /**
+     * 导航到指定页面
+     *
+     * @param url 页面 URL
+     */
+    void navigate(String url);
+
+    /**
+     * 在当前页面执行 JavaScript 脚本
+     *
+     * @param script 脚本
+     * @param args   脚本参数，在脚本中通过 arguments 访问
+     * @return 脚本返回值
+     */
+    Object executeScript(String script,
+                         Object... args);
+
+    /**
+     * 在当前页面执行异步 JavaScript 脚本
+     * <p>
+     * 脚本通过最后一个参数（回调函数）返回结果
+     *
+     * @param script  脚本
+     * @param timeout 等待回调的超时时间
+     * @param args    脚本参数
+     * @return 回调传入的结果
+     */
+    Object executeAsyncScript(String script,
+                              Duration timeout,
+                              Object... args);
+
+    /**
+     * 执行固定脚本
+     * <p>
+     * 默认每次发送完整源码，支持固定脚本的会话只在首次调用时发送源码
+     *
+     * @param script 固定脚本
+     * @param args   脚本参数
+     * @return 脚本返回值
+     */
+    default Object executeScript(PinnedScript script,
+                                 Object... args) {
+
+        return executeScript(script.source(), args);
+    }
+
+    /**
+     * 执行异步固定脚本
+     *
+     * @param script  固定脚本
+     * @param timeout 等待回调的超时时间
+     * @param args    脚本参数
+     * @return 回调传入的结果
+     * @see #executeScript(PinnedScript, Object...)
+     */
+    default Object executeAsyncScript(PinnedScript script,
+                                      Duration timeout,
+                                      Object... args) {
+
+        return executeAsyncScript(script.source(), timeout, args);
+    }
+
+    /**
+     * 等待页面中出现匹配指定选择器的元素
+     *
+     * @param cssSelector CSS 选择器
+     * @param timeout     超时时间
+     * @return 元素是否在超时前出现
+     */
+    default boolean waitFor(String cssSelector,
+                            Duration timeout) {
+
+        return waitUntil("return document.querySelector(arguments[0]) !== null", timeout, cssSelector);
+    }
+
+    /**
+     * 等待脚本返回真值
+     *
+     * @param condition 条件脚本
+     * @param timeout   超时时间
+     * @param args      脚本参数
+     * @return 条件是否在超时前成立
+     */
+    boolean waitUntil(String condition,
+                      Duration timeout,
+                      Object... args);
+
+    /**
+     * 监听下一条 URL 包含指定片段的网络响应
+     * <p>
+     * 须在触发请求之前调用；同一片段重复调用时，仅最后一次调用返回的 future 会被完成
+     *
+     * @param urlFragment URL 片段
+     * @return 以响应体完成的 future，不支持监听网络响应时返回 null
+     */
+    @Nullable
+    CompletableFuture<String> nextResponseBody(String urlFragment);
+
+    /**
+     * 获取对指定页面可见的 Cookies
+     *
+     * @param url 页面 URL
+     * @return Cookies
+     */
+    List<Cookie> getCookies(String url);
+
+    /**
+     * 批量写入 Cookies
+     *
+     * @param cookies Cookies
+     */
+    void setCookies(Collection<Cookie> cookies);
+
+}
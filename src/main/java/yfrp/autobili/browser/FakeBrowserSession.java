@@ -0,0 +1,223 @@
+package yfrp.autobili.browser;
+
+import org.jetbrains.annotations.Nullable;
+import org.openqa.selenium.Cookie;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 内存中的浏览器会话
+ * <p>
+ * 不启动浏览器，按固定延迟模拟导航与脚本执行，脚本返回值由预先登记的响应函数决定，
+ * 用于离线测量工作线程自身的调度与持久化开销
+ */
+public class FakeBrowserSession implements BrowserSession {
+
+    // 等待条件成立时的轮询间隔，与 SeleniumBrowserSession 相同
+    private static final Duration POLL_INTERVAL = Duration.ofMillis(100);
+
+    // 导航延迟
+    private final Duration navigateLatency;
+    // 脚本执行延迟
+    private final Duration scriptLatency;
+
+    // 脚本片段 -> 响应函数，按登记顺序匹配
+    private final Map<String, Function<Object[], Object>> responders = new LinkedHashMap<>();
+    // URL 片段 -> 网络响应体
+    private final Map<String, Supplier<String>> responseBodies = new LinkedHashMap<>();
+    // Cookies，键为 名称;域名;路径
+    private final Map<String, Cookie> cookies = new LinkedHashMap<>();
+
+    // 当前页面 URL
+    private volatile String currentUrl = "about:blank";
+    // 导航次数
+    private final AtomicInteger navigations = new AtomicInteger();
+    // 脚本执行次数
+    private final AtomicInteger scripts = new AtomicInteger();
+
+    /**
+     * 构造函数
+     *
+     * @param navigateLatency 每次导航的延迟
+     * @param scriptLatency   每次脚本执行的延迟
+     */
+    public FakeBrowserSession(Duration navigateLatency,
+                              Duration scriptLatency) {
+
+        this.navigateLatency = navigateLatency;
+        this.scriptLatency = scriptLatency;
+    }
+
+    /**
+     * 登记脚本响应函数
+     * <p>
+     * 脚本包含指定片段时，以脚本参数调用响应函数并返回其结果；没有匹配的响应函数时脚本返回 null。
+     * 异步脚本同样按此规则响应，结果直接作为回调结果返回
+     *
+     * @param scriptFragment 脚本片段
+     * @param responder      响应函数
+     * @return 当前会话
+     */
+    public synchronized FakeBrowserSession respond(String scriptFragment,
+                                                   Function<Object[], Object> responder) {
+
+        responders.put(scriptFragment, responder);
+        return this;
+    }
+
+    /**
+     * 登记网络响应
+     * <p>
+     * 监听 URL 包含指定片段的响应时，返回的 future 直接以响应体完成；未登记时视为不支持监听网络响应
+     *
+     * @param urlFragment URL 片段
+     * @param body        响应体
+     * @return 当前会话
+     */
+    public synchronized FakeBrowserSession respondNetwork(String urlFragment,
+                                                          Supplier<String> body) {
+
+        responseBodies.put(urlFragment, body);
+        return this;
+    }
+
+    @Override
+    public void navigate(String url) {
+        pause(navigateLatency);
+        currentUrl = url;
+        navigations.incrementAndGet();
+    }
+
+    @Override
+    public Object executeScript(String script,
+                                Object... args) {
+
+        pause(scriptLatency);
+        scripts.incrementAndGet();
+
+        Function<Object[], Object> responder = null;
+        synchronized (this) {
+            for (var entry : responders.entrySet()) {
+                if (script.contains(entry.getKey())) {
+                    responder = entry.getValue();
+                    break;
+                }
+            }
+        }
+        return responder != null ? responder.apply(args) : null;
+    }
+
+    @Override
+    public Object executeAsyncScript(String script,
+                                     Duration timeout,
+                                     Object... args) {
+
+        return executeScript(script, args);
+    }
+
+    @Override
+    public boolean waitUntil(String condition,
+                             Duration timeout,
+                             Object... args) {
+
+        var deadline = System.nanoTime() + timeout.toNanos();
+        while (true) {
+            var result = executeScript(condition, args);
+            if (result instanceof Boolean b ? b : result != null) {
+                return true;
+            }
+
+            var remaining = deadline - System.nanoTime();
+            if (remaining <= 0 || Thread.currentThread().isInterrupted()) {
+                return false;
+            }
+            pause(Duration.ofNanos(Math.min(remaining, POLL_INTERVAL.toNanos())));
+        }
+    }
+
+    @Override
+    @Nullable
+    public synchronized CompletableFuture<String> nextResponseBody(String urlFragment) {
+        var body = responseBodies.get(urlFragment);
+        return body != null ? CompletableFuture.completedFuture(body.get()) : null;
+    }
+
+    @Override
+    public synchronized List<Cookie> getCookies(String url) {
+
+        var host = URI.create(url).getHost();
+        var result = new ArrayList<Cookie>();
+        for (var cookie : cookies.values()) {
+            var domain = cookie.getDomain();
+            if (domain == null || host == null ||
+                host.equals(domain) || host.endsWith(domain.startsWith(".") ? domain : "." + domain)) {
+                result.add(cookie);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized void setCookies(Collection<Cookie> cookies) {
+        for (var cookie : cookies) {
+            this.cookies.put(cookie.getName() + ";" + cookie.getDomain() + ";" + cookie.getPath(), cookie);
+        }
+    }
+
+    /**
+     * 获取当前页面 URL
+     *
+     * @return 当前页面 URL
+     */
+    public String getCurrentUrl() {
+        return currentUrl;
+    }
+
+    /**
+     * 获取导航次数
+     *
+     * @return 导航次数
+     */
+    public int getNavigationCount() {
+        return navigations.get();
+    }
+
+    /**
+     * 获取脚本执行次数
+     *
+     * @return 脚本执行次数
+     */
+    public int getScriptCount() {
+        return scripts.get();
+    }
+
+    /**
+     * 模拟延迟
+     * <p>
+     * 被中断时保留中断标志并立即返回，由调用方在下一个阻塞点处理
+     *
+     * @param latency 延迟
+     */
+    private static void pause(Duration latency) {
+        if (latency.isZero() || latency.isNegative()) {
+            return;
+        }
+
+        try {
+            Thread.sleep(latency);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
@@ -0,0 +1,55 @@
+package yfrp.autobili.browser;
+
+import org.slf4j.Logger;
+
+import java.util.List;
+
+/**
+ * 基准测试延迟统计
+ */
+class LatencyStats {
+
+    /**
+     * 输出吞吐量与延迟分位数
+     *
+     * @param logger    日志记录器
+     * @param name      测试项名称
+     * @param latencies 每次迭代的耗时（纳秒）
+     * @param total     总耗时（纳秒）
+     */
+    static void report(Logger logger,
+                       String name,
+                       List<Long> latencies,
+                       long total) {
+
+        if (latencies.isEmpty()) {
+            logger.info("{}: 无样本", name);
+            return;
+        }
+
+        var sorted = latencies.stream().sorted().toList();
+        logger.info("{}: {} 次，吞吐量 {} 次/s，p50 {}ms，p95 {}ms，最大 {}ms",
+                name,
+                sorted.size(),
+                String.format("%.2f", sorted.size() * 1e9 / total),
+                String.format("%.2f", percentile(sorted, 0.50) / 1e6),
+                String.format("%.2f", percentile(sorted, 0.95) / 1e6),
+                String.format("%.2f", sorted.getLast() / 1e6)
+        );
+    }
+
+    /**
+     * 计算分位数（最近秩法）
+     *
+     * @param sorted 已排序的样本
+     * @param p      分位数，范围 (0, 1]
+     * @return 分位数对应的样本值
+     */
+    static long percentile(List<Long> sorted,
+                           double p) {
+
+        var rank = (int) Math.ceil(p * sorted.size());
+        return sorted.get(Math.max(rank, 1) - 1);
+    }
+
+}
@@ -0,0 +1,44 @@
+package yfrp.autobili.browser;
+
+/**
+ * 固定脚本
+ * <p>
+ * 脚本以函数形式注册到页面的全局对象中，之后每次调用只需发送很短的调用语句，
+ * 支持的会话会在之后的每个新文档中自动注册
+ *
+ * @param name   脚本名称，在会话中唯一
+ * @param source 脚本源码，与普通脚本一样通过 arguments 访问参数，异步脚本的最后一个参数为回调函数
+ */
+public record PinnedScript(String name,
+                           String source) {
+
+    // 页面中未注册该脚本时的返回值
+    static final String MISSING = "__autobili_missing__";
+
+    /**
+     * 获取在页面中注册脚本的语句
+     *
+     * @return 注册语句
+     */
+    String definition() {
+        return "(window.__autobili = window.__autobili || {})['" + name + "'] = function () {\n" +
+               source +
+               "\n};";
+    }
+
+    /**
+     * 获取调用已注册脚本的语句
+     * <p>
+     * 页面中未注册时返回（或以回调传出）{@link #MISSING}
+     *
+     * @param async 是否为异步脚本
+     * @return 调用语句
+     */
+    String invocation(boolean async) {
+        var lookup = "const f = window.__autobili && window.__autobili['" + name + "'];";
+        return async
+                ? lookup + " if (!f) { arguments[arguments.length - 1]('" + MISSING + "'); return; } f.apply(null, arguments);"
+                : lookup + " if (!f) return '" + MISSING + "'; return f.apply(null, arguments);";
+    }
+
+}
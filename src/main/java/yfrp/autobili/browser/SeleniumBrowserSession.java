@@ -0,0 +1,510 @@
+package yfrp.autobili.browser;
+
+import org.jetbrains.annotations.Nullable;
+import org.openqa.selenium.Cookie;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.chromium.HasCdp;
+import org.openqa.selenium.devtools.Command;
+import org.openqa.selenium.devtools.DevTools;
+import org.openqa.selenium.devtools.Event;
+import org.openqa.selenium.devtools.HasDevTools;
+import org.openqa.selenium.json.Json;
+import org.openqa.selenium.support.ui.WebDriverWait;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import yfrp.autobili.util.ChromeUtil;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 基于 Selenium WebDriver 的浏览器会话
+ * <p>
+ * 支持 CDP 时通过一次 CDP 调用批量读写 Cookies，通过 CDP 网络事件读取接口响应，
+ * 并将固定脚本注册到之后的每个新文档中；驱动启用 BiDi 时，通过页面推送的事件等待条件成立
+ */
+public class SeleniumBrowserSession implements BrowserSession {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SeleniumBrowserSession.class);
+
+    // 条件轮询间隔
+    private static final Duration POLL_INTERVAL = Duration.ofMillis(100);
+
+    // CDP 网络事件，使用与浏览器版本无关的原始 JSON 形式
+    private static final Event<Map<String, Object>> RESPONSE_RECEIVED =
+            new Event<>("Network.responseReceived", input -> input.read(Json.MAP_TYPE));
+    private static final Event<Map<String, Object>> LOADING_FINISHED =
+            new Event<>("Network.loadingFinished", input -> input.read(Json.MAP_TYPE));
+    private static final Event<Map<String, Object>> LOADING_FAILED =
+            new Event<>("Network.loadingFailed", input -> input.read(Json.MAP_TYPE));
+
+    // JavaScript 脚本：条件成立时推送信号，条件函数体在调用处拼接到脚本开头
+    private static final String SCRIPT_SIGNAL_WHEN =
+            """
+            const [id, args, timeout] = arguments;
+            const check = () => {
+              try { return !!condition.apply(null, args); } catch (e) { return false; }
+            };
+            if (check()) return true;
+            
+            const observer = new MutationObserver(() => {
+              if (!check()) return;
+              observer.disconnect();
+              clearTimeout(expire);
+              console.debug('%s' + id);
+            });
+            observer.observe(document, {childList: true, subtree: true, attributes: true, characterData: true});
+            const expire = setTimeout(() => observer.disconnect(), timeout);
+            return false;
+            """.formatted(BiDiEvents.SIGNAL_PREFIX);
+
+    // 页面信号编号
+    private static final AtomicLong SIGNAL_COUNTER = new AtomicLong();
+
+    // WebDriver 实例
+    private final WebDriver driver;
+    // BiDi 事件订阅，未启用 BiDi 时为 null
+    private final BiDiEvents events;
+    // 当前设置的异步脚本超时时间
+    private Duration scriptTimeout;
+
+    // 已固定的脚本名称
+    private final Set<String> pinnedScripts = ConcurrentHashMap.newKeySet();
+    // 是否无法固定脚本
+    private volatile boolean pinUnavailable = false;
+
+    // 监听网络事件的 DevTools 连接，未启用时为 null
+    private DevTools devTools;
+    // 是否无法监听网络事件
+    private boolean networkUnavailable = false;
+    // 等待匹配的网络响应：URL 片段 -> future
+    private final Map<String, CompletableFuture<String>> pendingResponses = new ConcurrentHashMap<>();
+    // 已匹配、等待加载完成的请求：请求 ID -> future
+    private final Map<String, CompletableFuture<String>> matchedRequests = new ConcurrentHashMap<>();
+
+    /**
+     * 构造函数
+     *
+     * @param driver WebDriver 实例
+     */
+    public SeleniumBrowserSession(WebDriver driver) {
+        this(driver, ChromeUtil.hasBiDi(driver));
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param driver  WebDriver 实例
+     * @param useBiDi 是否通过 BiDi 事件等待条件成立，驱动未启用 BiDi 时回退到轮询
+     */
+    public SeleniumBrowserSession(WebDriver driver,
+                                  boolean useBiDi) {
+        this.driver = driver;
+        this.events = useBiDi ? subscribe(driver) : null;
+    }
+
+    /**
+     * 订阅驱动的 BiDi 事件
+     *
+     * @param driver WebDriver 实例
+     * @return BiDi 事件订阅，失败时返回 null
+     */
+    @Nullable
+    private static BiDiEvents subscribe(WebDriver driver) {
+        try {
+            return new BiDiEvents(driver);
+        } catch (RuntimeException e) {
+            LOGGER.warn("订阅 BiDi 事件失败，将回退到轮询: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 取消会话持有的 BiDi 事件订阅与 DevTools 网络监听
+     * <p>
+     * 释放驱动前调用；关闭后会话不应再使用
+     */
+    public void close() {
+        if (events != null) {
+            events.close();
+        }
+        if (devTools != null) {
+            try {
+                devTools.clearListeners();
+            } catch (RuntimeException e) {
+                LOGGER.debug("清除 DevTools 监听失败: {}", e.getMessage());
+            }
+        }
+        var closed = new IllegalStateException("浏览器会话已关闭");
+        pendingResponses.values().forEach(future -> future.completeExceptionally(closed));
+        matchedRequests.values().forEach(future -> future.completeExceptionally(closed));
+        pendingResponses.clear();
+        matchedRequests.clear();
+    }
+
+    @Override
+    public void navigate(String url) {
+        ChromeUtil.navigate(driver, url);
+    }
+
+    @Override
+    public Object executeScript(String script,
+                                Object... args) {
+
+        return ((JavascriptExecutor) driver).executeScript(script, args);
+    }
+
+    @Override
+    public synchronized Object executeAsyncScript(String script,
+                                                  Duration timeout,
+                                                  Object... args) {
+
+        // 仅在超时时间变化时重新设置，避免每次调用多一次往返
+        if (!timeout.equals(scriptTimeout)) {
+            driver.manage().timeouts().scriptTimeout(timeout);
+            scriptTimeout = timeout;
+        }
+        return ((JavascriptExecutor) driver).executeAsyncScript(script, args);
+    }
+
+    @Override
+    public Object executeScript(PinnedScript script,
+                                Object... args) {
+
+        if (!ensurePinned(script)) {
+            return executeScript(script.source(), args);
+        }
+
+        var result = executeScript(script.invocation(false), args);
+        if (PinnedScript.MISSING.equals(result)) {
+            // 固定前已加载的文档或注册失败的文档，补充注册后重试
+            executeScript(script.definition());
+            result = executeScript(script.invocation(false), args);
+        }
+        return result;
+    }
+
+    @Override
+    public Object executeAsyncScript(PinnedScript script,
+                                     Duration timeout,
+                                     Object... args) {
+
+        if (!ensurePinned(script)) {
+            return executeAsyncScript(script.source(), timeout, args);
+        }
+
+        var result = executeAsyncScript(script.invocation(true), timeout, args);
+        if (PinnedScript.MISSING.equals(result)) {
+            executeScript(script.definition());
+            result = executeAsyncScript(script.invocation(true), timeout, args);
+        }
+        return result;
+    }
+
+    /**
+     * 确保脚本已固定到会话中
+     * <p>
+     * 通过 CDP 注册到之后的每个新文档，并立即注册到当前文档
+     *
+     * @param script 固定脚本
+     * @return 是否已固定
+     */
+    private boolean ensurePinned(PinnedScript script) {
+
+        if (pinnedScripts.contains(script.name())) {
+            return true;
+        }
+        if (pinUnavailable || !(driver instanceof HasCdp cdp)) {
+            return false;
+        }
+
+        try {
+            cdp.executeCdpCommand("Page.addScriptToEvaluateOnNewDocument", Map.of("source", script.definition()));
+            executeScript(script.definition());
+            pinnedScripts.add(script.name());
+            return true;
+        } catch (RuntimeException e) {
+            pinUnavailable = true;
+            LOGGER.warn("无法固定脚本，将每次发送完整脚本: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    @Override
+    public boolean waitUntil(String condition,
+                             Duration timeout,
+                             Object... args) {
+
+        if (events != null) {
+            return awaitSignal(condition, timeout, args);
+        }
+
+        try {
+            return new WebDriverWait(driver, timeout, POLL_INTERVAL)
+                    .until(_ -> isTruthy(executeScript(condition, args)));
+        } catch (TimeoutException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 在页面中监听 DOM 变更，条件成立时通过 BiDi 日志事件推送信号
+     * <p>
+     * 超时后再检查一次条件，避免页面改写 console 导致信号丢失
+     *
+     * @param condition 条件脚本
+     * @param timeout   超时时间
+     * @param args      脚本参数
+     * @return 条件是否在超时前成立
+     */
+    private boolean awaitSignal(String condition,
+                                Duration timeout,
+                                Object... args) {
+
+        var id = Long.toString(SIGNAL_COUNTER.incrementAndGet());
+        var signal = events.nextSignal(id);
+        try {
+            var script = "const condition = function () {\n" + condition + "\n};\n" + SCRIPT_SIGNAL_WHEN;
+            if (isTruthy(executeScript(script, id, List.of(args), timeout.toMillis()))) {
+                return true;
+            }
+
+            signal.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+            return true;
+
+        } catch (java.util.concurrent.TimeoutException | ExecutionException e) {
+            return isTruthy(executeScript(condition, args));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            events.cancelSignal(id);
+        }
+    }
+
+    @Override
+    @Nullable
+    public synchronized CompletableFuture<String> nextResponseBody(String urlFragment) {
+
+        if (!enableNetworkEvents()) {
+            return null;
+        }
+
+        var future = new CompletableFuture<String>();
+        var previous = pendingResponses.put(urlFragment, future);
+        if (previous != null) {
+            previous.cancel(false);
+        }
+        return future;
+    }
+
+    /**
+     * 启用 CDP 网络事件监听
+     * <p>
+     * 只在首次调用时建立连接；浏览器不支持 DevTools 时记录后不再尝试
+     *
+     * @return 是否已启用
+     */
+    private boolean enableNetworkEvents() {
+
+        if (devTools != null) {
+            return true;
+        }
+        if (networkUnavailable) {
+            return false;
+        }
+
+        try {
+            if (!(driver instanceof HasDevTools hasDevTools)) {
+                throw new UnsupportedOperationException(driver.getClass().getSimpleName() + " 不支持 DevTools");
+            }
+
+            var tools = hasDevTools.getDevTools();
+            tools.createSessionIfThereIsNotOne();
+            tools.addListener(RESPONSE_RECEIVED, this::onResponseReceived);
+            tools.addListener(LOADING_FINISHED, this::onLoadingFinished);
+            tools.addListener(LOADING_FAILED, this::onLoadingFailed);
+            tools.send(new Command<Void>("Network.enable", Map.of()));
+            devTools = tools;
+            return true;
+
+        } catch (RuntimeException e) {
+            networkUnavailable = true;
+            LOGGER.warn("无法监听网络响应，将回退到页面提示: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 收到响应头时，将匹配的请求与等待中的 future 关联
+     *
+     * @param event Network.responseReceived 事件
+     */
+    private void onResponseReceived(Map<String, Object> event) {
+
+        if (pendingResponses.isEmpty() ||
+            !(event.get("response") instanceof Map<?, ?> response) ||
+            !(response.get("url") instanceof String url)) {
+            return;
+        }
+
+        for (var fragment : pendingResponses.keySet()) {
+            if (url.contains(fragment)) {
+                var future = pendingResponses.remove(fragment);
+                if (future != null) {
+                    matchedRequests.put((String) event.get("requestId"), future);
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * 响应加载完成时读取响应体
+     * <p>
+     * 事件回调运行在 DevTools 连接线程上，在该线程上同步发送命令会阻塞自身，因此另起任务读取
+     *
+     * @param event Network.loadingFinished 事件
+     */
+    private void onLoadingFinished(Map<String, Object> event) {
+
+        var requestId = (String) event.get("requestId");
+        var future = matchedRequests.remove(requestId);
+        if (future == null) {
+            return;
+        }
+
+        CompletableFuture.runAsync(() -> {
+            try {
+                Map<String, Object> result = devTools.send(new Command<>(
+                        "Network.getResponseBody",
+                        Map.of("requestId", requestId),
+                        input -> input.read(Json.MAP_TYPE)
+                ));
+
+                var body = (String) result.get("body");
+                if (Boolean.TRUE.equals(result.get("base64Encoded"))) {
+                    body = new String(Base64.getDecoder().decode(body), StandardCharsets.UTF_8);
+                }
+                future.complete(body);
+
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+        });
+    }
+
+    /**
+     * 请求失败时结束等待
+     *
+     * @param event Network.loadingFailed 事件
+     */
+    private void onLoadingFailed(Map<String, Object> event) {
+        var future = matchedRequests.remove((String) event.get("requestId"));
+        if (future != null) {
+            future.completeExceptionally(new IllegalStateException("请求失败: " + event.get("errorText")));
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<Cookie> getCookies(String url) {
+
+        if (!(driver instanceof HasCdp cdp)) {
+            return new ArrayList<>(driver.manage().getCookies());
+        }
+
+        var cookies = (List<Map<String, Object>>) cdp
+                .executeCdpCommand("Network.getCookies", Map.of("urls", List.of(url)))
+                .get("cookies");
+
+        return cookies.stream()
+                .map(SeleniumBrowserSession::fromCdpCookie)
+                .toList();
+    }
+
+    @Override
+    public void setCookies(Collection<Cookie> cookies) {
+
+        if (driver instanceof HasCdp cdp) {
+            cdp.executeCdpCommand("Network.setCookies", Map.of(
+                    "cookies", cookies.stream().map(SeleniumBrowserSession::toCdpCookie).toList()
+            ));
+        } else {
+            // 不支持 CDP 时逐个添加，需要当前页面与 Cookie 同域
+            cookies.forEach(driver.manage()::addCookie);
+        }
+    }
+
+    /**
+     * 判断脚本返回值是否为真值
+     *
+     * @param result 脚本返回值
+     * @return 是否为真值
+     */
+    private static boolean isTruthy(Object result) {
+        return result instanceof Boolean b ? b : result != null;
+    }
+
+    /**
+     * 将 CDP Network.Cookie 转换为 Cookie
+     *
+     * @param cookie CDP Cookie
+     * @return Cookie
+     */
+    private static Cookie fromCdpCookie(Map<String, Object> cookie) {
+
+        var builder = new Cookie.Builder((String) cookie.get("name"), (String) cookie.get("value"))
+                .domain((String) cookie.get("domain"))
+                .path((String) cookie.get("path"))
+                .isSecure(Boolean.TRUE.equals(cookie.get("secure")))
+                .isHttpOnly(Boolean.TRUE.equals(cookie.get("httpOnly")))
+                .sameSite((String) cookie.get("sameSite"));
+
+        // 会话 Cookie 的 expires 为 -1
+        if (cookie.get("expires") instanceof Number expires && expires.doubleValue() > 0) {
+            builder.expiresOn(new Date((long) (expires.doubleValue() * 1000)));
+        }
+        return builder.build();
+    }
+
+    /**
+     * 将 Cookie 转换为 CDP Network.CookieParam
+     *
+     * @param cookie Cookie
+     * @return CDP Cookie 参数
+     */
+    private static Map<String, Object> toCdpCookie(Cookie cookie) {
+
+        var param = new LinkedHashMap<String, Object>();
+        param.put("name", cookie.getName());
+        param.put("value", cookie.getValue());
+        param.put("domain", cookie.getDomain());
+        param.put("path", cookie.getPath());
+        param.put("secure", cookie.isSecure());
+        param.put("httpOnly", cookie.isHttpOnly());
+        if (cookie.getSameSite() != null) {
+            param.put("sameSite", cookie.getSameSite());
+        }
+        if (cookie.getExpiry() != null) {
+            param.put("expires", cookie.getExpiry().getTime() / 1000.0);
+        }
+        return param;
+    }
+
+}
@@ -0,0 +1,114 @@
+package yfrp.autobili.browser;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import yfrp.autobili.comment.CommentWorker;
+import yfrp.autobili.config.Config;
+import yfrp.autobili.util.BackoffController;
+import yfrp.autobili.util.LoginSession;
+import yfrp.autobili.vid.SearchWorker;
+import yfrp.autobili.vid.VidPool;
+
+import java.nio.file.Files;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * 工作线程基准测试
+ * <p>
+ * 使用 {@link FakeBrowserSession} 运行搜索与评论流程，测量工作线程自身的吞吐量与延迟，无需启动 Chrome。
+ * 评论通过评论工作器的单轮任务执行，经过完整的评论流水线，视频发布时间由固定的查询结果代替接口请求。
+ * 视频池写入临时目录，配置读取当前目录下的 config.yaml
+ * <p>
+ * 参数: [迭代次数] [导航延迟毫秒] [脚本延迟毫秒]
+ */
+public class SessionBenchmark {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SessionBenchmark.class);
+
+    // 每个搜索结果页返回的视频数
+    private static final int RESULTS_PER_PAGE = 30;
+
+    static void main(String[] args)
+            throws Exception {
+
+        var iterations = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        var navigateLatency = Duration.ofMillis(args.length > 1 ? Long.parseLong(args[1]) : 0);
+        var scriptLatency = Duration.ofMillis(args.length > 2 ? Long.parseLong(args[2]) : 0);
+
+        var config = Config.getInstance();
+        var dir = Files.createTempDirectory("autobili-bench");
+        var toComment = new VidPool(dir.resolve("bvids_to_comment.txt").toString());
+        var commented = new VidPool(dir.resolve("bvids_commented.txt").toString());
+
+        // 固定随机种子，保证每次运行生成相同的搜索结果
+        var random = new Random(42);
+        var session = new FakeBrowserSession(navigateLatency, scriptLatency)
+                .respond("document.querySelector(arguments[0])", _ -> true)
+                .respond("querySelectorAll(arguments[0])", _ -> searchResults(random))
+                .respond("getClientRects", _ -> Map.of("stage", "ready", "elapsed", 0))
+                .respond(".brt-editor", _ -> Map.of("stage", "published", "elapsed", 0))
+                .respondNetwork("/x/v2/reply/add", () -> "{\"code\":0,\"message\":\"0\"}");
+
+        var backoff = new BackoffController(dir.resolve("backoff.json"), () -> Duration.ofSeconds(config.getCommentCooldown()));
+        var searchWorker = new SearchWorker(config, toComment, commented, backoff);
+        var searchLatencies = new ArrayList<Long>();
+        var searchStart = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            var start = System.nanoTime();
+            searchWorker.searchOnce(session, "benchmark-" + i);
+            searchLatencies.add(System.nanoTime() - start);
+        }
+        LatencyStats.report(LOGGER, "搜索", searchLatencies, System.nanoTime() - searchStart);
+
+        // 所有视频均在一分钟前发布，均可评论
+        var commentWorker = new CommentWorker(
+                config,
+                config.autoCommentInstance(),
+                toComment,
+                commented,
+                backoff,
+                new LoginSession(config.getUrlHomepage()),
+                _ -> Instant.now().getEpochSecond() - 60
+        );
+        var commentLatencies = new ArrayList<Long>();
+        var commentStart = System.nanoTime();
+        for (int i = 0; i < iterations && !toComment.isEmpty(); i++) {
+            var start = System.nanoTime();
+            commentWorker.tick(session);
+            commentLatencies.add(System.nanoTime() - start);
+        }
+        LatencyStats.report(LOGGER, "评论", commentLatencies, System.nanoTime() - commentStart);
+
+        // 停止流水线并写入处理结果
+        commentWorker.stopAccepting();
+        commentWorker.flush();
+        LOGGER.info("评论流水线 | 待评论: {}, 已处理: {}", toComment.size(), commented.size());
+
+        LOGGER.info("共导航 {} 次，执行脚本 {} 次，视频池目录: {}",
+                session.getNavigationCount(),
+                session.getScriptCount(),
+                dir
+        );
+        System.exit(0);
+    }
+
+    /**
+     * 生成一页搜索结果链接
+     *
+     * @param random 随机数生成器
+     * @return 视频链接列表
+     */
+    private static List<String> searchResults(Random random) {
+        var links = new ArrayList<String>(RESULTS_PER_PAGE);
+        for (int i = 0; i < RESULTS_PER_PAGE; i++) {
+            links.add("https://www.bilibili.com/video/BV1" + Long.toString(random.nextLong(1L << 40), 36) + "/");
+        }
+        return links;
+    }
+
+}
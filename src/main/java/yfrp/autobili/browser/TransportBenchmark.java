@@ -0,0 +1,131 @@
+package yfrp.autobili.browser;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.bidi.module.Script;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import yfrp.autobili.util.ChromeUtil;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 传输方式基准测试
+ * <p>
+ * 启动一个启用 BiDi 的无头浏览器，比较经典 WebDriver HTTP 命令与 BiDi WebSocket 命令的单次往返延迟，
+ * 以及轮询与事件推送两种方式发现页面变化的延迟
+ * <p>
+ * 参数: [迭代次数]
+ */
+public class TransportBenchmark {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TransportBenchmark.class);
+
+    // 测试页面
+    private static final String PAGE = "data:text/html,<html><body></body></html>";
+
+    // JavaScript 脚本：延迟指定毫秒后向页面添加元素，并记录添加时间
+    private static final String SCRIPT_ADD_LATER =
+            """
+            const old = document.getElementById('autobili-bench');
+            if (old) old.remove();
+            setTimeout(() => {
+              const e = document.createElement('div');
+              e.id = 'autobili-bench';
+              document.body.appendChild(e);
+              window.autobiliAddedAt = performance.timeOrigin + performance.now();
+            }, arguments[0]);
+            """;
+
+    // 添加元素前的延迟（毫秒）
+    private static final int ADD_DELAY_MS = 200;
+
+    static void main(String[] args)
+            throws Exception {
+
+        var iterations = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+
+        ChromeUtil.resolveBinaries();
+        ChromeUtil.setBiDi(true);
+        var driver = ChromeUtil.getHeadlessDriver();
+        try {
+            if (!ChromeUtil.hasBiDi(driver)) {
+                LOGGER.error("浏览器未建立 BiDi 连接");
+                return;
+            }
+            driver.get(PAGE);
+
+            measureRoundTrip(driver, iterations);
+            measureDetection("轮询发现页面变化", new SeleniumBrowserSession(driver, false), iterations);
+            measureDetection("事件推送发现页面变化", new SeleniumBrowserSession(driver, true), iterations);
+
+        } finally {
+            ChromeUtil.cleanupAllDrivers();
+        }
+        System.exit(0);
+    }
+
+    /**
+     * 测量单次命令往返延迟
+     *
+     * @param driver     已启用 BiDi 的 WebDriver 实例
+     * @param iterations 迭代次数
+     */
+    private static void measureRoundTrip(WebDriver driver,
+                                         int iterations) {
+
+        var js = (JavascriptExecutor) driver;
+        var classic = new ArrayList<Long>();
+        var classicStart = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            var start = System.nanoTime();
+            js.executeScript("return 1;");
+            classic.add(System.nanoTime() - start);
+        }
+        LatencyStats.report(LOGGER, "经典 HTTP 脚本往返", classic, System.nanoTime() - classicStart);
+
+        // Chrome 中窗口句柄即 BiDi 浏览上下文编号
+        var contextId = driver.getWindowHandle();
+        try (var script = new Script(driver)) {
+            var bidi = new ArrayList<Long>();
+            var bidiStart = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                var start = System.nanoTime();
+                script.evaluateFunctionInBrowsingContext(contextId, "1", false, Optional.empty());
+                bidi.add(System.nanoTime() - start);
+            }
+            LatencyStats.report(LOGGER, "BiDi 脚本往返", bidi, System.nanoTime() - bidiStart);
+        }
+    }
+
+    /**
+     * 测量从页面添加元素到 Java 端发现的延迟
+     *
+     * @param name       测试项名称
+     * @param session    浏览器会话
+     * @param iterations 迭代次数
+     */
+    private static void measureDetection(String name,
+                                         SeleniumBrowserSession session,
+                                         int iterations) {
+
+        List<Long> latencies = new ArrayList<>();
+        var total = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            session.executeScript(SCRIPT_ADD_LATER, ADD_DELAY_MS);
+            if (!session.waitFor("#autobili-bench", Duration.ofSeconds(5))) {
+                LOGGER.warn("{}: 第 {} 次未发现元素", name, i + 1);
+                continue;
+            }
+            var detectedAt = System.currentTimeMillis();
+
+            var addedAt = (Number) session.executeScript("return window.autobiliAddedAt;");
+            latencies.add(Math.max(0, (long) ((detectedAt - addedAt.doubleValue()) * 1_000_000)));
+        }
+        LatencyStats.report(LOGGER, name, latencies, System.nanoTime() - total);
+    }
+
+}
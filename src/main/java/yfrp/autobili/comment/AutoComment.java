@@ -1,17 +1,19 @@
 package yfrp.autobili.comment;
 
-import org.openqa.selenium.By;
-import org.openqa.selenium.JavascriptExecutor;
-import org.openqa.selenium.WebDriver;
-import org.openqa.selenium.WebElement;
-import org.openqa.selenium.support.ui.ExpectedConditions;
-import org.openqa.selenium.support.ui.WebDriverWait;
+import org.openqa.selenium.json.Json;
+import org.openqa.selenium.json.JsonException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import yfrp.autobili.browser.BrowserSession;
+import yfrp.autobili.browser.PinnedScript;
 import yfrp.autobili.config.Config;
 
 import java.time.Duration;
-import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Bilibili 自动评论功能类
@@ -24,71 +26,168 @@ public class AutoComment {
 
     private final Config config;
 
-    // 等待元素超时时间（秒）
+    // 等待评论框就绪的超时时间（秒）
     private static final int TIMEOUT = 30;
 
     // 评论格式生成器
-    private RandomComment commentFormat = null;
+    private volatile RandomComment commentFormat = null;
 
-    // JavaScript 脚本：向评论框发送评论内容
-    private static final String SCRIPT_SEND_COMMENT =
+    // 评论接口路径
+    private static final String REPLY_API = "/x/v2/reply/add";
+
+    private static final Json JSON = new Json();
+
+    // 异步脚本整体超时时间相对页面内超时的余量
+    private static final Duration SCRIPT_SLACK = Duration.ofSeconds(5);
+
+    // JavaScript 异步脚本：等待评论框就绪
+    // 沿 bili-comments → bili-comment-box → bili-comment-rich-textarea → .brt-editor 逐级监听各影子根的变更，
+    // 编辑器已渲染时缓存评论框与编辑器句柄，并立即返回 {stage, elapsed}，stage 为 ready 或超时时停留的层级
+    private static final PinnedScript SCRIPT_AWAIT_EDITOR = new PinnedScript("awaitEditor",
             """
-            const comments = arguments[0];
-            if (!comments || !comments.shadowRoot) return false;
+            const timeout = arguments[0];
+            const done = arguments[arguments.length - 1];
+            const start = Date.now();
             
-            const shadowRoot = comments.shadowRoot;
-            const commentBox = shadowRoot.querySelector('bili-comment-box');
-            if (!commentBox || !commentBox.shadowRoot) return false;
+            const observed = new WeakSet();
+            const observers = [];
+            let stage = 'comments';
+            let scrolled = false;
+            let finished = false;
+            let timer, deadline;
             
-            const textarea = commentBox.shadowRoot.querySelector('bili-comment-rich-textarea');
-            if (!textarea || !textarea.shadowRoot) return false;
+            const finish = () => {
+              if (finished) return;
+              finished = true;
+              observers.forEach(o => o.disconnect());
+              clearInterval(timer);
+              clearTimeout(deadline);
+              done({stage: stage, elapsed: Date.now() - start});
+            };
             
-            const editor = textarea.shadowRoot.querySelector('.brt-editor');
-            if (!editor) return false;
+            const watch = (root) => {
+              if (!root || observed.has(root)) return;
+              observed.add(root);
+              const observer = new MutationObserver(() => probe());
+              observer.observe(root, {childList: true, subtree: true});
+              observers.push(observer);
+            };
             
-            editor.textContent = arguments[1];
-            editor.dispatchEvent(new Event('input', {bubbles: true}));
-            return true;
-            """;
-    // JavaScript 脚本：点击发送按钮
-    private static final String SCRIPT_CLICK_SEND_BUTTON =
-            """
-            const comments = arguments[0];
-            const shadowRoot = comments.shadowRoot;
-            const commentBox = shadowRoot.querySelector('bili-comment-box');
-            const publishBtn = commentBox.shadowRoot.querySelector('#pub button');
-            publishBtn.click();
-            """;
-    // JavaScript 脚本：设置 Toast 监视器，用于捕获评论发送结果
-    private static final String SCRIPT_CHECK_TOAST =
+            const probe = () => {
+              if (finished) return;
+              const comments = document.querySelector('bili-comments');
+              if (!comments) { stage = 'comments'; return; }
+              if (!scrolled) {
+                // 评论区进入视口后才开始加载
+                comments.scrollIntoView({block: 'center'});
+                scrolled = true;
+              }
+              watch(comments.shadowRoot);
+            
+              const box = comments.shadowRoot && comments.shadowRoot.querySelector('bili-comment-box');
+              if (!box) { stage = 'box'; return; }
+              watch(box.shadowRoot);
+            
+              const textarea = box.shadowRoot && box.shadowRoot.querySelector('bili-comment-rich-textarea');
+              if (!textarea) { stage = 'textarea'; return; }
+              watch(textarea.shadowRoot);
+            
+              const editor = textarea.shadowRoot && textarea.shadowRoot.querySelector('.brt-editor');
+              if (!editor || !editor.isConnected || editor.getClientRects().length === 0) { stage = 'editor'; return; }
+            
+              // 缓存句柄，发送评论时无需再逐级查找
+              (window.__autobili = window.__autobili || {}).handles = {boxRoot: box.shadowRoot, editor: editor};
+              stage = 'ready';
+              finish();
+            };
+            
+            watch(document.documentElement);
+            // 挂载影子根不会触发宿主所在树的变更，以低频检查兜底
+            timer = setInterval(probe, 250);
+            deadline = setTimeout(finish, timeout);
+            probe();
+            """);
+
+    // 等待评论框出现的页面内超时时间（毫秒）
+    private static final long EDITOR_TIMEOUT_MS = 5000;
+    // 发送后等待接口响应或 Toast 的超时时间（毫秒）
+    private static final long RESULT_TIMEOUT_MS = 5000;
+
+    // JavaScript 异步脚本：等待评论框出现，填写并发送评论
+    // waitToast 为 true 时等待第一条 Toast，否则点击发送后立即返回
+    // 结果为 {stage, toast, elapsed}，stage 取值 published / toast / no-editor / no-toast
+    private static final PinnedScript SCRIPT_SUBMIT_COMMENT = new PinnedScript("submitComment",
             """
-            window.biliToasts = [];
+            const [text, editorTimeout, resultTimeout, waitToast] = arguments;
+            const done = arguments[arguments.length - 1];
+            const start = Date.now();
+            
+            // 捕获发送后出现的 Toast
+            const toasts = [];
             const observer = new MutationObserver((mutations) => {
-              mutations.forEach((mutation) => {
-                mutation.addedNodes.forEach((node) => {
-                  // 检查节点本身或其子节点是否有 b-toast 类
-                  if (node.nodeType === 1) {
-                    let toastNode = node.classList.contains('b-toast') ? node : node.querySelector('.b-toast');
-                    if (toastNode) {
-                      const content = toastNode.innerText.trim();
-                      if (content) {
-                        window.biliToasts.push(content);
-                        console.log('[监视器] 捕获到 toast: ' + content);
-                      }
-                    }
-                  }
-                });
-              });
+              for (const mutation of mutations) {
+                for (const node of mutation.addedNodes) {
+                  if (node.nodeType !== 1) continue;
+                  const toast = node.classList.contains('b-toast') ? node : node.querySelector('.b-toast');
+                  const content = toast && toast.innerText.trim();
+                  if (content) toasts.push(content);
+                }
+              }
             });
             observer.observe(document.body, {childList: true, subtree: true});
-            """;
-    // JavaScript 脚本：获取 Toast 消息
-    private static final String SCRIPT_GET_TOASTS =
-            """
-            var results = window.biliToasts;
-            window.biliToasts = [];
-            return results;
-            """;
+            
+            let timer;
+            const finish = (stage, toast) => {
+              observer.disconnect();
+              clearInterval(timer);
+              done({stage: stage, toast: toast || null, elapsed: Date.now() - start});
+            };
+            
+            // 优先使用就绪探测缓存的句柄，句柄失效时才重新逐级查找
+            const resolveHandles = () => {
+              const cached = window.__autobili && window.__autobili.handles;
+              if (cached && cached.editor.isConnected && cached.boxRoot.host.isConnected) return cached;
+            
+              const comments = document.querySelector('bili-comments');
+              const box = comments && comments.shadowRoot && comments.shadowRoot.querySelector('bili-comment-box');
+              const textarea = box && box.shadowRoot && box.shadowRoot.querySelector('bili-comment-rich-textarea');
+              const editor = textarea && textarea.shadowRoot && textarea.shadowRoot.querySelector('.brt-editor');
+              return editor ? {boxRoot: box.shadowRoot, editor: editor} : null;
+            };
+            
+            // 0: 等待评论框；1: 已填写，等待发送按钮可用；2: 已发送，等待 Toast
+            let state = 0;
+            let publishedAt = 0;
+            let handles = null;
+            const poll = () => {
+              if (state === 0) {
+                handles = resolveHandles();
+                if (handles) {
+                  handles.editor.textContent = text;
+                  handles.editor.dispatchEvent(new Event('input', {bubbles: true}));
+                  state = 1;
+                } else if (Date.now() - start > editorTimeout) {
+                  finish('no-editor');
+                }
+              } else if (state === 1) {
+                const button = handles.boxRoot.querySelector('#pub button');
+                if (button && !button.disabled) {
+                  button.click();
+                  publishedAt = Date.now();
+                  state = 2;
+                  if (!waitToast) finish('published');
+                } else if (Date.now() - start > editorTimeout) {
+                  finish('no-editor');
+                }
+              } else if (toasts.length > 0) {
+                finish('toast', toasts[0]);
+              } else if (Date.now() - publishedAt > resultTimeout) {
+                finish('no-toast');
+              }
+            };
+            timer = setInterval(poll, 50);
+            poll();
+            """);
 
 
     public AutoComment(Config config) {
@@ -106,16 +205,24 @@ public class AutoComment {
 
     /**
      * 在指定视频下发送评论
+     * <p>
+     * 点击发送前的各步骤等待时间不超过剩余时限，超出时放弃该视频；
+     * 点击发送后评论可能已发出，不再因超时放弃，仅按自身超时等待结果
      *
-     * @param driver WebDriver 实例
-     * @param bvid   视频 BV 号
+     * @param session  浏览器会话
+     * @param bvid     视频 BV 号
+     * @param url      视频页面 URL
+     * @param deadline 处理时限
      * @return 评论是否发送成功
-     * @throws InterruptedException 线程中断异常
-     * @throws CommentException     评论异常
+     * @throws InterruptedException      线程中断异常
+     * @throws DeadlineExceededException 点击发送前超出处理时限
+     * @throws CommentException          评论异常
      */
-    public boolean comment(WebDriver driver,
+    @SuppressWarnings("unchecked")
+    public boolean comment(BrowserSession session,
                            String bvid,
-                           String url)
+                           String url,
+                           Deadline deadline)
             throws InterruptedException,
                    CommentException {
 
@@ -128,188 +235,200 @@ public class AutoComment {
             throw new IllegalStateException("Comment format not set");
         }
 
-        // 创建等待对象
-        WebDriverWait wait = new WebDriverWait(driver, Duration.ofSeconds(TIMEOUT));
-
-        // 导航到视频页面
-        driver.get(url);
-
-        // 等待评论区元素加载
-        wait.until(ExpectedConditions.presenceOfElementLocated(By.tagName("bili-comments")));
-
-        // 滚动到评论区
-        scrollToCommentSection(driver);
-        Thread.sleep(1000);
+        // 导航到视频页面，导航时间受页面加载超时限制
+        deadline.check("导航");
+        var start = System.nanoTime();
+        session.navigate(url);
+        var navigateMs = (System.nanoTime() - start) / 1_000_000;
+
+        // 等待评论框就绪
+        deadline.check("等待评论框");
+        var readyTimeout = deadline.cap(Duration.ofSeconds(TIMEOUT));
+        var ready = ScriptOutcome.of((Map<String, Object>) session.executeAsyncScript(
+                SCRIPT_AWAIT_EDITOR,
+                readyTimeout.plus(SCRIPT_SLACK),
+                readyTimeout.toMillis()
+        ));
+        if (!ready.stage().equals("ready")) {
+            deadline.check("等待评论框");
+            LOGGER.error("等待评论框就绪超时，停留在 {}", ready.stage());
+            return false;
+        }
+        LOGGER.info("视频 {} 评论框就绪，导航 {}ms，等待 {}ms", bvid, navigateMs, ready.elapsedMs());
 
         // 发送评论
-        return sendComment(driver, wait, comment);
+        deadline.check("发送评论");
+        return sendComment(session, comment, deadline);
     }
 
 
     /**
      * 发送评论的核心方法
+     * <p>
+     * 通过一次异步脚本调用完成等待评论框、填写和发送；
+     * 能够监听网络响应时以评论接口返回的 code 判断结果，否则回退到读取 Toast
      *
-     * @param driver      WebDriver 实例
-     * @param wait        等待对象
+     * @param session     浏览器会话
      * @param commentText 评论内容
+     * @param deadline    处理时限，仅限制点击发送前等待评论框的时间
      * @return 评论是否发送成功
      * @throws InterruptedException 线程中断异常
      * @throws CommentException     评论异常
      */
-    private boolean sendComment(WebDriver driver,
-                                WebDriverWait wait,
-                                String commentText)
+    @SuppressWarnings("unchecked")
+    private boolean sendComment(BrowserSession session,
+                                String commentText,
+                                Deadline deadline)
             throws InterruptedException,
                    CommentException {
 
-        // 设置 Toast 监视器
-        ((JavascriptExecutor) driver).executeScript(SCRIPT_CHECK_TOAST);
-
-        // 使用 Selenium 发送评论
-        if (!sendCommentWithSelenium(driver, wait, commentText)) {
-            return false;
-        }
-
-        // 检查评论发送结果
-        checkCommentToast(driver);
-        return true;
+        // 须在点击发送前开始监听
+        var response = session.nextResponseBody(REPLY_API);
+
+        var editorTimeout = deadline.cap(Duration.ofMillis(EDITOR_TIMEOUT_MS)).toMillis();
+        var result = (Map<String, Object>) session.executeAsyncScript(
+                SCRIPT_SUBMIT_COMMENT,
+                Duration.ofMillis(editorTimeout + RESULT_TIMEOUT_MS).plus(SCRIPT_SLACK),
+                commentText,
+                editorTimeout,
+                RESULT_TIMEOUT_MS,
+                response == null
+        );
+        var outcome = ScriptOutcome.of(result);
+        LOGGER.debug("评论提交结果 {}，耗时 {}ms", outcome.stage(), outcome.elapsedMs());
+
+        return switch (outcome.stage()) {
+            case "published" -> {
+                checkReplyResponse(response);
+                yield true;
+            }
+            case "toast" -> {
+                checkCommentToast(outcome.toast());
+                yield true;
+            }
+            case "no-editor" -> {
+                deadline.check("填写评论");
+                LOGGER.error("无法找到评论框，评论输入失败");
+                yield false;
+            }
+            default -> {
+                LOGGER.warn("发送评论后未收到结果提示");
+                yield true;
+            }
+        };
     }
 
     /**
-     * 检查评论发送结果
-     * <p>
-     * 通过检查 Toast 消息来判断评论是否发送成功
+     * 检查评论接口响应
      *
-     * @param driver WebDriver 实例
+     * @param response 评论接口响应体
      * @throws InterruptedException 线程中断异常
      * @throws CommentException     评论异常
      */
-    @SuppressWarnings("unchecked")
-    private void checkCommentToast(WebDriver driver)
+    private void checkReplyResponse(CompletableFuture<String> response)
             throws InterruptedException,
                    CommentException {
 
-        // 最多检查10次，每次间隔500ms
-        for (int i = 0; i < 10; i++) {
-            // 获取 Toast 消息
-            var toasts = (List<String>) ((JavascriptExecutor) driver).executeScript(SCRIPT_GET_TOASTS);
-
-            // 遍历所有 Toast 消息
-            for (var t : toasts) {
-
-                // 跳过空消息
-                if (t == null || t.isBlank()) {
-                    continue;
-                }
-
-                // 评论发送成功
-                if (t.equals("发送成功")) {
-                    LOGGER.info("评论发送成功");
-                    return;
-                }
-
-                // cd ban
-                if (t.contains(config.getToastKwCdBan())) {
-                    throw new CommentCooldownException(t);
-                }
-
-                // 未登录
-                if (t.contains(config.getToastKwNotLoggedIn())) {
-                    throw new NotLoggedInException(t);
-                }
-
-                // 评论发送失败
-                LOGGER.warn("评论发送失败: {}", t);
-                return;
-
-            }
-
-            // 等待500ms后再次检查
-            Thread.sleep(500);
+        ReplyResult reply;
+        try {
+            reply = ReplyResult.parse(response.get(RESULT_TIMEOUT_MS, TimeUnit.MILLISECONDS));
+        } catch (TimeoutException e) {
+            LOGGER.warn("发送评论后 {}ms 内未收到评论接口响应", RESULT_TIMEOUT_MS);
+            return;
+        } catch (ExecutionException | JsonException e) {
+            LOGGER.warn("读取评论接口响应失败: {}", e.getMessage());
+            return;
         }
 
+        switch (CommentOutcome.fromCode(reply.code())) {
+            case SUCCESS -> LOGGER.info("评论发送成功");
+            case COOLDOWN -> throw new CommentCooldownException(reply.code() + " " + reply.message());
+            case NOT_LOGGED_IN -> throw new NotLoggedInException(reply.code() + " " + reply.message());
+            case FAILED -> LOGGER.warn("评论发送失败: {} {}", reply.code(), reply.message());
+        }
     }
 
-
     /**
-     * 使用 Selenium 发送评论
+     * 检查评论发送结果
      * <p>
-     * 通过 JavaScript 操作 Shadow DOM 中的评论框
+     * 无法监听网络响应时，通过 Toast 消息判断评论是否发送成功
      *
-     * @param driver      WebDriver 实例
-     * @param wait        等待对象
-     * @param commentText 评论内容
-     * @return 评论是否发送成功
+     * @param toast Toast 消息
+     * @throws CommentException 评论异常
      */
-    private boolean sendCommentWithSelenium(WebDriver driver,
-                                            WebDriverWait wait,
-                                            String commentText) {
+    private void checkCommentToast(String toast)
+            throws CommentException {
 
-        try {
+        // 评论发送成功
+        if (toast.equals("发送成功")) {
+            LOGGER.info("评论发送成功");
+            return;
+        }
 
-            // 获取 JavaScript 执行器
-            JavascriptExecutor js = (JavascriptExecutor) driver;
-
-            // 等待评论区元素加载
-            WebElement biliComments = wait.until(ExpectedConditions.presenceOfElementLocated(
-                    By.cssSelector("bili-comments")
-            ));
-
-            var i = 0;
-            // 最多重试3次
-            while (true) {
-                // 执行 JavaScript 向评论框发送评论内容
-                var result = js.executeScript(SCRIPT_SEND_COMMENT, biliComments, commentText);
-                var success = (result != null) && (boolean) result;
-                if (success) {
-                    break;
-                }
-                // 重试次数达到3次，退出
-                if (i == 3) {
-                    LOGGER.error("无法找到评论框，评论输入失败");
-                    return false;
-                }
-                // 重试
-                LOGGER.warn("第 {} 次输入评论失败！1s 后重试...", (++i));
-                Thread.sleep(1000);
-            }
-            // 等待500ms
-            Thread.sleep(500);
+        // cd ban
+        if (toast.contains(config.getToastKwCdBan())) {
+            throw new CommentCooldownException(toast);
+        }
 
-            // 点击发送按钮
-            js.executeScript(SCRIPT_CLICK_SEND_BUTTON, biliComments);
+        // 未登录
+        if (toast.contains(config.getToastKwNotLoggedIn())) {
+            throw new NotLoggedInException(toast);
+        }
 
-            return true;
+        // 评论发送失败
+        LOGGER.warn("评论发送失败: {}", toast);
+    }
 
-        } catch (Exception e) {
-            LOGGER.error("尝试输入评论时出错", e);
+    /**
+     * 页面异步脚本的结果
+     *
+     * @param stage     结束阶段，脚本未返回结果时为 none
+     * @param toast     Toast 消息，可为 null
+     * @param elapsedMs 页面内耗时（毫秒）
+     */
+    private record ScriptOutcome(String stage,
+                                 String toast,
+                                 long elapsedMs) {
+
+        /**
+         * 解析脚本返回的结果
+         *
+         * @param result 脚本返回的结果，可为 null
+         * @return 脚本结果
+         */
+        static ScriptOutcome of(Map<String, Object> result) {
+            if (result == null) {
+                return new ScriptOutcome("none", null, 0);
+            }
+            return new ScriptOutcome(
+                    String.valueOf(result.get("stage")),
+                    (String) result.get("toast"),
+                    result.get("elapsed") instanceof Number n ? n.longValue() : 0
+            );
         }
-        return false;
     }
 
     /**
-     * 滚动到评论区
-     * <p>
-     * 将页面滚动到评论区位置，确保评论区可见
+     * 评论接口返回的结果
      *
-     * @param driver WebDriver 实例
+     * @param code    接口返回的 code
+     * @param message 接口返回的消息
      */
-    private void scrollToCommentSection(WebDriver driver) {
-        try {
-            // 获取 JavaScript 执行器
-            JavascriptExecutor js = (JavascriptExecutor) driver;
-
-            // 查找评论区元素
-            WebElement commentSection = driver.findElement(By.cssSelector("bili-comments"));
-
-            // 平滑滚动到评论区
-            js.executeScript(
-                    "arguments[0].scrollIntoView({behavior: 'smooth', block: 'center'});",
-                    commentSection
+    private record ReplyResult(int code,
+                               String message) {
+
+        /**
+         * 解析评论接口响应体
+         *
+         * @param body 响应体
+         * @return 评论接口返回的结果
+         */
+        static ReplyResult parse(String body) {
+            Map<String, Object> map = JSON.toType(body, Json.MAP_TYPE);
+            return new ReplyResult(
+                    map.get("code") instanceof Number n ? n.intValue() : -1,
+                    String.valueOf(map.get("message"))
             );
-
-        } catch (Exception e) {
-            LOGGER.error("滚动到评论区失败", e);
         }
     }
 
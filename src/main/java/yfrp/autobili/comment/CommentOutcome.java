@@ -0,0 +1,45 @@
+package yfrp.autobili.comment;
+
+import java.util.Set;
+
+/**
+ * 评论发送结果
+ * <p>
+ * 由评论接口 (x/v2/reply/add) 返回的 code 决定，不依赖页面上的提示文字
+ */
+public enum CommentOutcome {
+
+    // 发送成功
+    SUCCESS,
+    // 触发风控，需要冷却
+    COOLDOWN,
+    // 未登录或登录状态失效
+    NOT_LOGGED_IN,
+    // 其他失败，例如内容违规或重复评论
+    FAILED;
+
+    // 未登录 (-101)、CSRF 校验失败 (-111)
+    private static final Set<Integer> NOT_LOGGED_IN_CODES = Set.of(-101, -111);
+    // 请求被拦截 (-412)、请求过于频繁 (-509)、需要验证码 (12015)
+    private static final Set<Integer> COOLDOWN_CODES = Set.of(-412, -509, 12015);
+
+    /**
+     * 根据接口返回的 code 获取评论结果
+     *
+     * @param code 接口返回的 code
+     * @return 评论结果
+     */
+    public static CommentOutcome fromCode(int code) {
+        if (code == 0) {
+            return SUCCESS;
+        }
+        if (NOT_LOGGED_IN_CODES.contains(code)) {
+            return NOT_LOGGED_IN;
+        }
+        if (COOLDOWN_CODES.contains(code)) {
+            return COOLDOWN;
+        }
+        return FAILED;
+    }
+
+}
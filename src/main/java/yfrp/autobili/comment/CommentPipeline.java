@@ -0,0 +1,765 @@
+package yfrp.autobili.comment;
+
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import yfrp.autobili.config.Config;
+import yfrp.autobili.util.BackoffController;
+import yfrp.autobili.util.TaskScope;
+import yfrp.autobili.vid.RateLimitedException;
+import yfrp.autobili.vid.VidPool;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * 评论流水线
+ * <p>
+ * 将评论任务拆分为 选取 → 去重 → 资格检查 → 浏览器评论 → 保存 五个阶段，相邻阶段以有界队列连接，
+ * 下游处理不过来时上游阻塞（背压）。去重与资格检查在后台线程中提前完成，
+ * 浏览器阶段取到的视频均可直接评论，无需等待接口请求与文件写入
+ * <p>
+ * 暂时失败的视频进入延迟重试队列，按失败次数指数延长重新进入流水线的等待时间，
+ * 失败次数达到上限后放弃该视频，避免浏览器反复处理同一个异常视频
+ * <p>
+ * 搜索到的新视频通过视频池的加入通知直接进入选取阶段，新的优先，无需等待下一轮评论任务；
+ * 待评论视频池中的积压视频仍由评论任务随机选取。浏览器评论仍按评论间隔进行
+ * <p>
+ * 浏览器评论由评论任务驱动，其余阶段各自运行在独立的虚拟线程中，
+ * 单个视频的子任务（接口查询、文件写入）在结构化作用域中执行，超时或中断时一并取消
+ */
+class CommentPipeline {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CommentPipeline.class);
+
+    // 新视频通知队列容量，积压时丢弃最旧的通知
+    private static final int ARRIVALS_CAPACITY = 64;
+    // 候选视频队列容量（选取 → 去重）
+    private static final int SELECTED_CAPACITY = 8;
+    // 待检查视频队列容量（去重 → 资格检查）
+    private static final int UNIQUE_CAPACITY = 4;
+    // 可评论视频队列容量（资格检查 → 浏览器评论），浏览器每次只评论一个视频，少量预取即可
+    private static final int ELIGIBLE_CAPACITY = 2;
+    // 资格检查并发数，检查需要请求视频信息接口
+    private static final int CHECK_THREADS = 2;
+    // 单个视频查询发布时间的超时时间，同时受处理时限限制
+    private static final Duration CHECK_TIMEOUT = Duration.ofSeconds(10);
+    // 保存视频列表的超时时间
+    private static final Duration PERSIST_TIMEOUT = Duration.ofSeconds(10);
+    // 停止时等待每个阶段线程结束的最长时间
+    private static final Duration STOP_TIMEOUT = Duration.ofSeconds(2);
+    // 风控退避期间检查是否恢复的间隔
+    private static final Duration BACKOFF_POLL = Duration.ofMinutes(1);
+    // 单个视频的最大尝试次数，达到后放弃该视频
+    private static final int MAX_ATTEMPTS = 4;
+    // 首次重试的延迟，之后每次翻倍
+    private static final Duration RETRY_BASE_DELAY = Duration.ofMinutes(5);
+    // 重试延迟上限
+    private static final Duration RETRY_MAX_DELAY = Duration.ofHours(1);
+
+    // 系统配置
+    private final Config config;
+    // 待评论视频池
+    private final VidPool toComment;
+    // 已评论视频池
+    private final VidPool commented;
+    // 风控退避控制器
+    private final BackoffController backoff;
+    // 视频发布时间查询
+    private final PubDateLookup pubDates;
+
+    // 新视频通知队列，从队尾取出最新的视频
+    private final BlockingDeque<Arrival> arrivals = new LinkedBlockingDeque<>(ARRIVALS_CAPACITY);
+    // 候选视频队列
+    private final BlockingQueue<String> selected = new ArrayBlockingQueue<>(SELECTED_CAPACITY);
+    // 待检查视频队列
+    private final BlockingQueue<String> unique = new ArrayBlockingQueue<>(UNIQUE_CAPACITY);
+    // 可评论视频队列
+    private final BlockingQueue<Candidate> eligible = new ArrayBlockingQueue<>(ELIGIBLE_CAPACITY);
+    // 待保存结果队列，保存阶段不可阻塞上游，不设容量上限
+    private final BlockingQueue<Result> results = new LinkedBlockingQueue<>();
+    // 延迟重试队列，到期后重新进入候选队列
+    private final DelayQueue<RetryEntry> retries = new DelayQueue<>();
+    // 视频已失败的次数，成功或放弃后清除
+    private final Map<String, Integer> failures = new ConcurrentHashMap<>();
+    // 已进入流水线、尚未保存结果的视频，避免同一视频重复进入
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+    // 各处理结果的视频数与耗时合计（毫秒）
+    private final Map<Outcome, LongAdder> outcomeCounts = new EnumMap<>(Outcome.class);
+    private final Map<Outcome, LongAdder> outcomeMillis = new EnumMap<>(Outcome.class);
+    // 按加入通知选取的新视频数与从加入到选取的耗时合计（毫秒）
+    private final LongAdder freshCount = new LongAdder();
+    private final LongAdder freshMillis = new LongAdder();
+
+    // 各阶段线程，不含保存阶段
+    private final List<Thread> threads = new ArrayList<>();
+    // 保存阶段线程，最后停止
+    private Thread persister;
+
+    /**
+     * 视频处理结果
+     */
+    enum Outcome {
+        // 已评论，移入已评论视频池
+        COMMENTED,
+        // 不满足评论条件，同样移入已评论视频池，之后不再检查
+        REJECTED,
+        // 视频失效或已处理，仅从待评论视频池中移除
+        SKIPPED,
+        // 暂时失败，计入失败次数，延迟后重试
+        RETRY,
+        // 超出处理时限被放弃，计入失败次数，延迟后重试
+        DEADLINE_EXCEEDED,
+        // 因冷却、未登录等与视频无关的原因未完成，留在待评论视频池中等待重新选取
+        RELEASED,
+        // 失败次数达到上限，移入已评论视频池，之后不再处理
+        DROPPED
+    }
+
+    /**
+     * 已通过检查、等待评论的视频
+     *
+     * @param bvid     视频 BV 号
+     * @param deadline 处理时限，排队期间暂停计时
+     */
+    record Candidate(String bvid,
+                     Deadline deadline) {
+    }
+
+    /**
+     * 新加入待评论视频池的视频
+     *
+     * @param bvid      视频 BV 号
+     * @param arrivedAt 加入时间（纳秒）
+     */
+    private record Arrival(String bvid,
+                           long arrivedAt) {
+    }
+
+    /**
+     * 待保存的处理结果
+     *
+     * @param bvid    视频 BV 号
+     * @param outcome 处理结果
+     */
+    private record Result(String bvid,
+                          Outcome outcome) {
+    }
+
+    /**
+     * 延迟重试的视频
+     *
+     * @param bvid    视频 BV 号
+     * @param readyAt 可重试的时间（纳秒）
+     */
+    private record RetryEntry(String bvid,
+                              long readyAt) implements Delayed {
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(readyAt - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(getDelay(TimeUnit.NANOSECONDS), other.getDelay(TimeUnit.NANOSECONDS));
+        }
+
+    }
+
+    /**
+     * 阶段任务，每次处理一个元素
+     */
+    @FunctionalInterface
+    private interface StageTask {
+        void run() throws InterruptedException;
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param config    系统配置
+     * @param toComment 待评论视频池
+     * @param commented 已评论视频池
+     * @param backoff   风控退避控制器
+     * @param pubDates  视频发布时间查询
+     */
+    CommentPipeline(Config config,
+                    VidPool toComment,
+                    VidPool commented,
+                    BackoffController backoff,
+                    PubDateLookup pubDates) {
+
+        this.config = config;
+        this.toComment = toComment;
+        this.commented = commented;
+        this.backoff = backoff;
+        this.pubDates = pubDates;
+
+        for (var outcome : Outcome.values()) {
+            outcomeCounts.put(outcome, new LongAdder());
+            outcomeMillis.put(outcome, new LongAdder());
+        }
+
+        toComment.addListener(this::onAdded);
+    }
+
+    /**
+     * 启动后台阶段线程
+     */
+    synchronized void start() {
+        if (persister != null) {
+            return;
+        }
+
+        threads.add(startStage("Comment-Admit", this::admit));
+        threads.add(startStage("Comment-Dedupe", this::dedupe));
+        for (int i = 1; i <= CHECK_THREADS; i++) {
+            threads.add(startStage("Comment-Check-" + i, this::checkEligibility));
+        }
+        persister = startStage("Comment-Persist", this::persist);
+        threads.add(startStage("Comment-Retry", this::requeue));
+    }
+
+    /**
+     * 停止后台阶段线程
+     * <p>
+     * 先停止上游阶段，再停止保存阶段，保存阶段退出前写入包括上游阶段退出时提交的所有结果
+     */
+    synchronized void stop() {
+        if (persister == null) {
+            return;
+        }
+
+        threads.forEach(Thread::interrupt);
+        join(threads);
+        threads.clear();
+
+        persister.interrupt();
+        join(List.of(persister));
+        persister = null;
+    }
+
+    /**
+     * 等待阶段线程结束，每个线程最多等待 STOP_TIMEOUT
+     *
+     * @param stages 阶段线程
+     */
+    private static void join(List<Thread> stages) {
+        for (var thread : stages) {
+            try {
+                thread.join(STOP_TIMEOUT);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * 新视频加入待评论视频池时调用，在添加视频的线程中执行，不阻塞
+     *
+     * @param bvid 视频 BV 号
+     */
+    private void onAdded(String bvid) {
+        var arrival = new Arrival(bvid, System.nanoTime());
+        // 积压过多时丢弃最旧的通知，被丢弃的视频仍可被随机选取
+        while (!arrivals.offerLast(arrival)) {
+            arrivals.pollFirst();
+        }
+    }
+
+    /**
+     * 选取阶段：将最新加入的视频放入候选队列
+     * <p>
+     * 候选队列已满时阻塞，期间加入的更新的视频在下一次优先选取
+     *
+     * @throws InterruptedException 线程中断异常
+     */
+    private void admit()
+            throws InterruptedException {
+
+        var arrival = arrivals.takeLast();
+        var bvid = arrival.bvid();
+        // 通知后可能已被处理或已在流水线中
+        if (!toComment.hasVid(bvid) || !inFlight.add(bvid)) {
+            return;
+        }
+
+        try {
+            selected.put(bvid);
+        } catch (InterruptedException e) {
+            inFlight.remove(bvid);
+            throw e;
+        }
+
+        var latency = Duration.ofNanos(System.nanoTime() - arrival.arrivedAt());
+        freshCount.increment();
+        freshMillis.add(latency.toMillis());
+        LOGGER.debug("新视频 {} 已进入候选队列，距加入 {}ms", bvid, latency.toMillis());
+    }
+
+    /**
+     * 选取阶段：从待评论视频池中随机选取视频填充候选队列
+     * <p>
+     * 候选队列已满或仍有未选取的新视频时不再选取，已在流水线中的视频不会重复选取
+     *
+     * @return 本次选取的视频数
+     */
+    int select() {
+        // 新视频优先，由加入通知选取
+        if (!arrivals.isEmpty()) {
+            return 0;
+        }
+
+        var count = 0;
+        // 随机选取可能重复命中流水线中的视频，限制尝试次数
+        for (int attempt = 0; attempt < SELECTED_CAPACITY * 2 && selected.remainingCapacity() > 0; attempt++) {
+
+            var bvid = toComment.getVidFromPool();
+            if (bvid == null) {
+                break;
+            }
+            if (!inFlight.add(bvid)) {
+                continue;
+            }
+            if (!selected.offer(bvid)) {
+                inFlight.remove(bvid);
+                break;
+            }
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * 获取流水线中尚未完成的视频，用于保存运行检查点
+     * <p>
+     * 包括各队列中排队的视频与重试队列中等待的视频，正在处理的视频仍在待评论视频池中，重启后会被重新选取
+     *
+     * @return 尚未完成的视频
+     */
+    List<PendingVideo> snapshot() {
+        var pending = new ArrayList<PendingVideo>();
+        Stream.of(selected.stream(), unique.stream(), eligible.stream().map(Candidate::bvid))
+                .flatMap(s -> s)
+                .forEach(bvid -> pending.add(new PendingVideo(bvid, failures.getOrDefault(bvid, 0), 0)));
+
+        var now = System.currentTimeMillis();
+        for (var entry : retries) {
+            pending.add(new PendingVideo(
+                    entry.bvid(),
+                    failures.getOrDefault(entry.bvid(), 0),
+                    now + entry.getDelay(TimeUnit.MILLISECONDS)
+            ));
+        }
+        return pending;
+    }
+
+    /**
+     * 从运行检查点恢复尚未完成的视频
+     * <p>
+     * 已不在待评论视频池中的视频被忽略，候选队列已满时其余视频留待随机选取
+     *
+     * @param pending 尚未完成的视频
+     */
+    void restore(List<PendingVideo> pending) {
+        var now = System.currentTimeMillis();
+        for (var video : pending) {
+            if (!toComment.hasVid(video.bvid()) || !inFlight.add(video.bvid())) {
+                continue;
+            }
+            if (video.failures() > 0) {
+                failures.put(video.bvid(), video.failures());
+            }
+
+            if (video.retryAt() > now) {
+                retries.add(new RetryEntry(
+                        video.bvid(),
+                        System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(video.retryAt() - now)
+                ));
+            } else if (!selected.offer(video.bvid())) {
+                inFlight.remove(video.bvid());
+            }
+        }
+    }
+
+    /**
+     * 浏览器评论阶段：获取一个已通过检查的视频，并恢复其处理计时
+     *
+     * @param timeout 最长等待时间
+     * @return 待评论的视频，超时返回 null
+     * @throws InterruptedException 线程中断异常
+     */
+    @Nullable
+    Candidate nextEligible(Duration timeout)
+            throws InterruptedException {
+        var candidate = eligible.poll(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        if (candidate != null) {
+            candidate.deadline().resume();
+        }
+        return candidate;
+    }
+
+    /**
+     * 提交视频的处理结果，交由保存阶段写入视频池
+     *
+     * @param bvid    视频 BV 号
+     * @param outcome 处理结果
+     * @param spent   处理耗时
+     */
+    void complete(String bvid,
+                  Outcome outcome,
+                  Duration spent) {
+        outcomeCounts.get(outcome).increment();
+        outcomeMillis.get(outcome).add(spent.toMillis());
+        results.add(new Result(bvid, outcome));
+    }
+
+    /**
+     * 获取流水线中各队列的长度与各处理结果的统计，用于日志
+     *
+     * @return 流水线状态描述
+     */
+    String describe() {
+        var outcomes = new StringBuilder();
+        for (var outcome : Outcome.values()) {
+            outcomes.append(", %s %d 个 %ds".formatted(
+                    outcome, outcomeCounts.get(outcome).sum(), outcomeMillis.get(outcome).sum() / 1000));
+        }
+        var fresh = freshCount.sum();
+        return "新视频 %d, 候选 %d, 待检查 %d, 可评论 %d, 待保存 %d, 待重试 %d, 新视频入选 %d 个 平均 %dms%s".formatted(
+                arrivals.size(),
+                selected.size(),
+                unique.size(),
+                eligible.size(),
+                results.size(),
+                retries.size(),
+                fresh,
+                fresh > 0 ? freshMillis.sum() / fresh : 0,
+                outcomes
+        );
+    }
+
+    /**
+     * 去重阶段：跳过已处理的视频
+     *
+     * @throws InterruptedException 线程中断异常
+     */
+    private void dedupe()
+            throws InterruptedException {
+
+        var bvid = selected.take();
+        if (commented.hasVid(bvid)) {
+            LOGGER.info("视频 {} 已被处理，跳过该视频", bvid);
+            complete(bvid, Outcome.SKIPPED, Duration.ZERO);
+            return;
+        }
+        unique.put(bvid);
+    }
+
+    /**
+     * 资格检查阶段：检查视频发布时间
+     * <p>
+     * 风控退避期间暂停请求接口
+     *
+     * @throws InterruptedException 线程中断异常
+     */
+    private void checkEligibility()
+            throws InterruptedException {
+
+        var pause = backoff.remaining();
+        if (pause.isPositive()) {
+            Thread.sleep(Math.min(pause.toMillis(), BACKOFF_POLL.toMillis()));
+            return;
+        }
+
+        var bvid = unique.take();
+        var deadline = Deadline.of(config.getCommentDeadline());
+        Outcome outcome;
+        try (var scope = new TaskScope("Comment-Check-" + bvid)) {
+            var pubDate = scope.fork(() -> pubDates.pubDate(bvid));
+            scope.join(deadline.cap(CHECK_TIMEOUT));
+            outcome = checkPubDate(bvid, pubDate.resultNow());
+
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RateLimitedException rateLimited) {
+                // 限流与视频无关，不计入失败次数
+                backoff.onRateLimited(rateLimited.getMessage());
+                complete(bvid, Outcome.RELEASED, deadline.spent());
+                return;
+            }
+            LOGGER.error("获取视频 {} 发布日期时出错", bvid, e.getCause());
+            complete(bvid, Outcome.RETRY, deadline.spent());
+            return;
+
+        } catch (TimeoutException e) {
+            LOGGER.warn("获取视频 {} 发布日期超时 ({}ms)", bvid, deadline.spent().toMillis());
+            complete(bvid, deadline.isExpired() ? Outcome.DEADLINE_EXCEEDED : Outcome.RETRY, deadline.spent());
+            return;
+
+        } catch (InterruptedException e) {
+            complete(bvid, Outcome.RELEASED, deadline.spent());
+            throw e;
+        }
+
+        if (outcome == null) {
+            // 排队等待评论期间暂停计时
+            eligible.put(new Candidate(bvid, deadline.pause()));
+        } else {
+            complete(bvid, outcome, deadline.spent());
+        }
+    }
+
+    /**
+     * 检查视频发布时间
+     * <p>
+     * 根据配置决定是否跳过该视频
+     *
+     * @param bvid    视频 BV 号
+     * @param pubDate 视频发布时间戳（秒）
+     * @return 跳过时的处理结果，可以评论时返回 null
+     */
+    @Nullable
+    private Outcome checkPubDate(String bvid,
+                                 long pubDate) {
+
+        // 发布时间无效，可能是视频被删除
+        if (pubDate < 0) {
+
+            LOGGER.info("视频 {} 发布日期为负 ({})，可能是视频被删除",
+                    bvid,
+                    pubDate
+            );
+            return Outcome.SKIPPED;
+        }
+
+        // 发布时间距今已超过设定的最大时间间隔
+        if (config.getAutoClearDelay() > 0 &&
+            pubDate < Instant.now().getEpochSecond() - config.getAutoClearDelay()) {
+
+            LOGGER.info("视频 {} 发布日期 {} 距今已超过设定的最大时间间隔 {}d {}h",
+                    bvid,
+                    formatTimestamp(pubDate),
+                    config.getAutoClearDelay() / 86400,
+                    (config.getAutoClearDelay() % 86400) / 3600
+            );
+            return Outcome.SKIPPED;
+        }
+
+        // 发布时间早于设定的最早发布日期
+        if (config.getMinPubdate() > pubDate) {
+
+            LOGGER.info("视频 {} 发布日期 {} 早于设定的最早发布日期 {}",
+                    bvid,
+                    formatTimestamp(pubDate),
+                    formatTimestamp(config.getMinPubdate())
+            );
+            return Outcome.REJECTED;
+        }
+
+        return null;
+    }
+
+    /**
+     * 保存阶段：批量写入处理结果
+     * <p>
+     * 一次取出所有已完成的结果，每个视频池最多写一次文件
+     *
+     * @throws InterruptedException 线程中断异常
+     */
+    private void persist()
+            throws InterruptedException {
+
+        var batch = new ArrayList<Result>();
+        try {
+            batch.add(results.take());
+        } finally {
+            // 中断退出前同样写入已完成的结果
+            results.drainTo(batch);
+            persist(batch);
+        }
+    }
+
+    /**
+     * 将处理结果写入视频池
+     *
+     * @param batch 处理结果
+     */
+    private void persist(List<Result> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        var now = String.valueOf(Instant.now().getEpochSecond());
+        // 进入重试队列的视频仍在流水线中
+        var retrying = new ArrayList<String>();
+        for (var result : batch) {
+            var outcome = result.outcome();
+            if (outcome == Outcome.RETRY || outcome == Outcome.DEADLINE_EXCEEDED) {
+                if (scheduleRetry(result.bvid())) {
+                    retrying.add(result.bvid());
+                    continue;
+                }
+                outcome = Outcome.DROPPED;
+            }
+            if (outcome != Outcome.RELEASED) {
+                failures.remove(result.bvid());
+            }
+
+            switch (outcome) {
+                case COMMENTED, REJECTED -> {
+                    toComment.remove(result.bvid());
+                    commented.put(result.bvid(), now);
+                    LOGGER.info("视频 {} 已处理完成 | 待评论: {}, 已处理: {}",
+                            result.bvid(),
+                            toComment.size(),
+                            commented.size()
+                    );
+                }
+                case SKIPPED -> {
+                    toComment.remove(result.bvid());
+                    LOGGER.info("已跳过视频 {} | 待评论: {}, 已处理: {}",
+                            result.bvid(),
+                            toComment.size(),
+                            commented.size()
+                    );
+                }
+                case DROPPED -> {
+                    toComment.remove(result.bvid());
+                    commented.put(result.bvid(), now);
+                    LOGGER.warn("视频 {} 已失败 {} 次，放弃该视频 | 待评论: {}, 已处理: {}",
+                            result.bvid(),
+                            MAX_ATTEMPTS,
+                            toComment.size(),
+                            commented.size()
+                    );
+                }
+                case RETRY, DEADLINE_EXCEEDED, RELEASED -> {
+                }
+            }
+        }
+
+        // 两个视频池写入不同文件，并行保存
+        try (var scope = new TaskScope("Comment-Persist")) {
+            scope.fork(() -> {
+                toComment.saveVideos();
+                return null;
+            });
+            scope.fork(() -> {
+                commented.saveVideos();
+                return null;
+            });
+            scope.join(PERSIST_TIMEOUT);
+
+        } catch (ExecutionException | TimeoutException e) {
+            LOGGER.error("保存视频列表时出错", e);
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+        } finally {
+            batch.stream()
+                    .map(Result::bvid)
+                    .filter(bvid -> !retrying.contains(bvid))
+                    .forEach(inFlight::remove);
+        }
+    }
+
+    /**
+     * 将失败的视频加入延迟重试队列
+     * <p>
+     * 第 n 次失败后等待 RETRY_BASE_DELAY * 2^(n-1)，不超过 RETRY_MAX_DELAY
+     *
+     * @param bvid 视频 BV 号
+     * @return 是否已加入，失败次数达到上限时返回 false
+     */
+    private boolean scheduleRetry(String bvid) {
+        int attempts = failures.merge(bvid, 1, Integer::sum);
+        if (attempts >= MAX_ATTEMPTS) {
+            return false;
+        }
+
+        var delay = RETRY_BASE_DELAY.multipliedBy(1L << (attempts - 1));
+        if (delay.compareTo(RETRY_MAX_DELAY) > 0) {
+            delay = RETRY_MAX_DELAY;
+        }
+        retries.add(new RetryEntry(bvid, System.nanoTime() + delay.toNanos()));
+        LOGGER.info("视频 {} 第 {} 次失败，{}min 后重试", bvid, attempts, delay.toMinutes());
+        return true;
+    }
+
+    /**
+     * 重试阶段：将到期的视频重新放入候选队列
+     *
+     * @throws InterruptedException 线程中断异常
+     */
+    private void requeue()
+            throws InterruptedException {
+
+        var entry = retries.take();
+        // 等待期间可能已被处理或移出待评论视频池
+        if (!toComment.hasVid(entry.bvid())) {
+            failures.remove(entry.bvid());
+            inFlight.remove(entry.bvid());
+            return;
+        }
+        selected.put(entry.bvid());
+    }
+
+    /**
+     * 启动阶段线程
+     *
+     * @param name 线程名称
+     * @param task 阶段任务
+     * @return 阶段线程
+     */
+    private Thread startStage(String name,
+                              StageTask task) {
+
+        return Thread.ofVirtual().name(name).start(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    task.run();
+                } catch (InterruptedException e) {
+                    break;
+                } catch (Exception e) {
+                    LOGGER.error("评论流水线阶段 {} 异常", name, e);
+                }
+            }
+        });
+    }
+
+    /**
+     * 格式化时间戳为可读字符串
+     *
+     * @param timestampSeconds 时间戳（秒）
+     * @return 格式化后的时间字符串
+     */
+    private static String formatTimestamp(long timestampSeconds) {
+        return Instant.ofEpochSecond(timestampSeconds)
+                .atZone(ZoneId.systemDefault())
+                .format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
+    }
+
+}
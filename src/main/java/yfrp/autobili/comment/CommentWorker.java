@@ -1,35 +1,38 @@
 package yfrp.autobili.comment;
 
 import org.apache.commons.lang3.math.NumberUtils;
-import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.WebDriverException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import yfrp.autobili.browser.BrowserSession;
+import yfrp.autobili.browser.SeleniumBrowserSession;
+import yfrp.autobili.util.BackoffController;
 import yfrp.autobili.util.ChromeUtil;
-import yfrp.autobili.util.Login;
+import yfrp.autobili.util.DriverPool;
+import yfrp.autobili.util.DriverWatchdog;
+import yfrp.autobili.util.LoginSession;
 import yfrp.autobili.config.Config;
 import yfrp.autobili.vid.BiliApi;
 import yfrp.autobili.vid.VidPool;
 
-import java.io.IOException;
+import java.time.Duration;
 import java.time.Instant;
-import java.time.ZoneId;
-import java.time.format.DateTimeFormatter;
-import java.util.Random;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.TimeUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
- * 评论工作线程类
+ * 评论工作器
  * <p>
- * 负责从待评论视频池中获取视频，检查视频发布时间，然后自动发送评论
+ * 负责驱动评论流水线：选取待评论视频，并在浏览器中对已通过检查的视频发送评论。
+ * 登录失效时交由登录会话在后台扫码登录，登录完成前暂停评论
  */
-public class CommentWorker implements Runnable {
+public class CommentWorker {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(CommentWorker.class);
 
@@ -41,8 +44,9 @@ public class CommentWorker implements Runnable {
     // 已处理视频计数器
     private static final AtomicInteger commentCount = new AtomicInteger(0);
 
-    // 待评论视频队列
-    private final BlockingQueue<String> queue = new LinkedBlockingQueue<>(10);
+    // 等待可评论视频的最长时间
+    private static final Duration ELIGIBLE_WAIT = Duration.ofSeconds(5);
+
     // 系统配置
     private final Config config;
 
@@ -50,18 +54,30 @@ public class CommentWorker implements Runnable {
     private final VidPool toComment;
     // 已评论视频池
     private final VidPool commented;
+    // 评论流水线
+    private final CommentPipeline pipeline;
     // 上次清理时间
-    private long lastClearTime = 0L;
-
-    // 冷却结束时间
-    private long cooldownEndTime = 0L;
+    private volatile long lastClearTime = 0L;
+
+    // 风控退避控制器
+    private final BackoffController backoff;
+    // 登录会话
+    private final LoginSession login;
+    // 启动时没有可用登录状态的浏览器 -> 原因，备用浏览器同样在此登记，被租借时取出
+    private final Map<WebDriver, String> loginRequired = new ConcurrentHashMap<>();
+    // 当前浏览器需要登录的原因，在下一轮评论时处理
+    private volatile String pendingLogin;
+    // 启动时创建的浏览器会话，备用浏览器的会话同样在此登记，被租借时取出
+    private final Map<WebDriver, SeleniumBrowserSession> sessions = new ConcurrentHashMap<>();
 
     // 是否接受新任务
     private volatile boolean accepting = true;
-    // 工作线程
-    private volatile Thread workerThread;
     // WebDriver 实例
     private WebDriver driver;
+    // 浏览器会话
+    private SeleniumBrowserSession session;
+    // 浏览器驱动池
+    private final DriverPool driverPool;
     // 自动评论实例
     private final AutoComment commenter;
 
@@ -72,18 +88,58 @@ public class CommentWorker implements Runnable {
      * @param commenter 自动评论实例
      * @param toComment 待评论视频池
      * @param commented 已评论视频池
+     * @param backoff   风控退避控制器
+     * @param login     登录会话
+     */
+    public CommentWorker(Config config,
+                         AutoComment commenter,
+                         VidPool toComment,
+                         VidPool commented,
+                         BackoffController backoff,
+                         LoginSession login) {
+        this(config,
+                commenter,
+                toComment,
+                commented,
+                backoff,
+                login,
+                bvid -> BiliApi.getVidPubDate(config.getUrlVideoApi(bvid))
+        );
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param config    系统配置
+     * @param commenter 自动评论实例
+     * @param toComment 待评论视频池
+     * @param commented 已评论视频池
+     * @param backoff   风控退避控制器
+     * @param login     登录会话
+     * @param pubDates  视频发布时间查询，资格检查阶段使用
      */
     public CommentWorker(Config config,
                          AutoComment commenter,
                          VidPool toComment,
-                         VidPool commented) {
+                         VidPool commented,
+                         BackoffController backoff,
+                         LoginSession login,
+                         PubDateLookup pubDates) {
 
         this.config = config;
         this.commenter = commenter;
         this.toComment = toComment;
         this.commented = commented;
-
-        LOGGER.info("评论浏览器已启动");
+        this.backoff = backoff;
+        this.login = login;
+        this.pipeline = new CommentPipeline(config, toComment, commented, backoff, pubDates);
+
+        this.driverPool = new DriverPool(
+                "评论浏览器",
+                "Comment-Driver-Standby",
+                this::launchDriver,
+                config.isWarmStandby()
+        );
     }
 
     public static String upgradeCommentedLine(String original) {
@@ -105,114 +161,6 @@ public class CommentWorker implements Runnable {
         return "";
     }
 
-    /**
-     * 检查视频发布时间
-     * <p>
-     * 根据配置决定是否跳过该视频
-     *
-     * @param bvid 视频 BV 号
-     * @return 是否跳过该视频
-     * @throws IOException          IO 异常
-     * @throws InterruptedException 线程中断异常
-     */
-    private boolean checkPubDate(@NotNull String bvid)
-            throws IOException,
-                   InterruptedException {
-
-        // 获取视频发布时间
-        long pubDate = BiliApi.getVidPubDate(config.getUrlVideoApi(bvid));
-
-        // 发布时间无效，可能是视频被删除
-        if (pubDate < 0) {
-
-            LOGGER.info("视频 {} 发布日期为负 ({})，可能是视频被删除",
-                    bvid,
-                    pubDate
-            );
-
-            removeFromToComment(bvid, false);
-            return true;
-        }
-
-        // 发布时间距今已超过设定的最大时间间隔
-        if (config.getAutoClearDelay() > 0 &&
-            pubDate < now() - config.getAutoClearDelay()) {
-
-            LOGGER.info("视频 {} 发布日期 {} 距今已超过设定的最大时间间隔 {}d {}h",
-                    bvid,
-                    formatTimestamp(pubDate),
-                    config.getAutoClearDelay() / 86400,
-                    (config.getAutoClearDelay() % 86400) / 3600
-            );
-
-            removeFromToComment(bvid, false);
-            return true;
-        }
-
-        // 发布时间早于设定的最早发布日期
-        if (config.getMinPubdate() > pubDate) {
-
-            removeFromToComment(bvid, true);
-
-            LOGGER.info("视频 {} 发布日期 {} 早于设定的最早发布日期 {}",
-                    bvid,
-                    formatTimestamp(pubDate),
-                    formatTimestamp(config.getMinPubdate())
-            );
-
-            return true;
-        }
-
-        return false;
-    }
-
-    /**
-     * 格式化时间戳为可读字符串
-     *
-     * @param timestampSeconds 时间戳（秒）
-     * @return 格式化后的时间字符串
-     */
-    private static String formatTimestamp(long timestampSeconds) {
-        return Instant.ofEpochSecond(timestampSeconds)
-                .atZone(ZoneId.systemDefault())
-                .format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
-    }
-
-    /**
-     * 从待评论视频池中移除视频
-     *
-     * @param bvid           视频 BV 号
-     * @param addToCommented 是否添加到已评论视频池
-     */
-    private void removeFromToComment(String bvid,
-                                     boolean addToCommented) {
-
-        // 从待评论视频池中移除
-        toComment.remove(bvid);
-        toComment.saveVideos();
-
-        // 添加到已评论视频池
-        if (addToCommented) {
-            commented.put(bvid, String.valueOf(now()));
-            commented.saveVideos();
-
-            LOGGER.info(
-                    "视频 {} 已处理完成 | 待评论: {}, 已处理: {}",
-                    bvid,
-                    toComment.size(),
-                    commented.size()
-            );
-        } else {
-            LOGGER.info(
-                    "已跳过视频 {} | 待评论: {}, 已处理: {}",
-                    bvid,
-                    toComment.size(),
-                    commented.size()
-            );
-        }
-
-    }
-
     /**
      * 获取当前时间戳
      *
@@ -246,147 +194,196 @@ public class CommentWorker implements Runnable {
     }
 
     /**
-     * 工作线程主循环
-     * <p>
-     * 负责从待评论视频池中获取视频，检查视频发布时间，然后自动发送评论
+     * 获取上次清理已处理视频记录的时间，用于保存运行检查点
+     *
+     * @return 上次清理时间（秒）
      */
-    @Override
-    public void run() {
-        launchDriver();
-        this.workerThread = Thread.currentThread();
-
-        while (accepting) {
-            try {
-                // 每小时清理一次已处理的视频记录
-                if (now() - lastClearTime > 3600) {
-                    clearCommented();
-                    lastClearTime = now();
-                }
+    public long getLastClearTime() {
+        return lastClearTime;
+    }
 
-                // 重新加载配置
-                config.loadConfig();
+    /**
+     * 获取流水线中尚未完成的视频，用于保存运行检查点
+     *
+     * @return 尚未完成的视频
+     */
+    public List<PendingVideo> getPendingVideos() {
+        return pipeline.snapshot();
+    }
 
-                // 评论处理
-                if (cooldownEndTime < now()) {
+    /**
+     * 从运行检查点恢复运行状态
+     * <p>
+     * 须在视频列表加载完成后、开始调度前调用
+     *
+     * @param lastClearTime 上次清理时间（秒）
+     * @param pending       尚未完成的视频
+     */
+    public void restore(long lastClearTime,
+                        List<PendingVideo> pending) {
+        this.lastClearTime = lastClearTime;
+        pipeline.restore(pending);
+    }
 
-                    // 将最多 3 个视频添加到队列
-                    for (int i = 0; i < 3; i++) {
-                        if (toComment.isEmpty()) {
-                            break;
-                        }
+    /**
+     * 预先启动评论浏览器
+     * <p>
+     * 可在调度开始前调用，与其他初始化任务并行执行
+     */
+    public void prepare() {
+        acquireDriver();
+    }
 
-                        var bvid = toComment.getVidFromPool();
-                        if (bvid == null) {
-                            continue;
-                        }
+    /**
+     * 执行一轮评论
+     * <p>
+     * 由调度器按评论间隔调用，补充流水线的候选视频，然后评论一个已通过检查的视频
+     */
+    public void tick() {
+        tick(null);
+    }
 
-                        if (!queue.offer(bvid)) {
-                            break;
-                        }
-                    }
+    /**
+     * 使用指定的浏览器会话执行一轮评论
+     * <p>
+     * 不租借、不回收浏览器，浏览器异常时不尝试恢复，用于不启动浏览器的基准测试
+     *
+     * @param fixedSession 浏览器会话，为 null 时使用从驱动池租借的浏览器
+     */
+    public void tick(@Nullable BrowserSession fixedSession) {
+        if (!accepting) {
+            return;
+        }
+        pipeline.start();
 
-                    comment();
-                }
+        try {
+            // 浏览器不可用时重新租借，仍不可用则等待下一轮
+            if (fixedSession == null && driver == null && !acquireDriver()) {
+                return;
+            }
 
-            } catch (WebDriverException e) {
-                if (accepting) {
-                    LOGGER.warn("评论浏览器被关闭，尝试恢复: {}", e.getMessage());
-                    recoverDriver();
-                }
+            // 每小时清理一次已处理的视频记录
+            if (now() - lastClearTime > 3600) {
+                clearCommented();
+                lastClearTime = now();
+            }
 
-            } catch (Exception e) {
-                if (accepting) {
-                    LOGGER.error("评论线程异常", e);
+            // 新浏览器没有可用的登录状态时，在后台开始扫码登录；
+            // 浏览器启动后可能已在其他浏览器中完成登录，此时重放保存的 Cookies 即可
+            var reason = pendingLogin;
+            if (reason != null) {
+                pendingLogin = null;
+                var current = fixedSession != null ? fixedSession : session;
+                if (!ChromeUtil.loadCookies(current)) {
+                    login.invalidate(current, reason);
                 }
             }
 
-            try {
-                // 等待下一次评论
-                Thread.sleep(config.getCommentInterval() *
-                             new Random().nextLong(750, 1251));
-
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                break;
+            // 登录期间浏览器由登录会话使用
+            if (!login.isValid()) {
+                LOGGER.debug("等待登录，跳过本轮评论 | {}", login.describe());
+                return;
             }
-        }
 
-        close();
-        LOGGER.info("评论线程已结束，已处理 {} 个视频", commentCount.get());
-    }
+            // 风控退避期间不做浏览器操作
+            if (backoff.isActive()) {
+                LOGGER.debug("风控退避中，跳过本轮评论 | {}", backoff.describe());
+                return;
+            }
 
-    /**
-     * 执行评论
-     * <p>
-     * 从队列中获取视频，检查是否已处理，然后发送评论
-     */
-    private void comment() {
+            // 浏览器资源占用过高时，在任务开始前回收
+            if (fixedSession == null) {
+                recycleDriverIfNeeded();
+            }
 
-        while (!queue.isEmpty()) {
+            // 补充候选视频
+            pipeline.select();
 
-            String bvid;
-            try {
-                bvid = queue.poll(1, TimeUnit.SECONDS);
-            } catch (InterruptedException e) {
-                continue;
-            }
+            // 评论处理
+            comment(fixedSession != null ? fixedSession : session);
 
-            if (bvid == null || bvid.isBlank()) {
-                continue;
+        } catch (WebDriverException e) {
+            if (accepting && fixedSession == null) {
+                LOGGER.warn("评论浏览器被关闭，尝试恢复: {}", e.getMessage());
+                recoverDriver();
+            } else if (accepting) {
+                LOGGER.error("评论任务异常", e);
             }
 
-            // 检查是否已处理
-            if (commented.hasVid(bvid)) {
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
 
-                commented.remove(bvid);
-                commented.saveVideos();
-                LOGGER.info("视频 {} 已被处理，跳过该视频", bvid);
-                continue;
+        } catch (Exception e) {
+            if (accepting) {
+                LOGGER.error("评论任务异常", e);
             }
+        }
+    }
 
-            try {
+    /**
+     * 执行评论
+     * <p>
+     * 从流水线中取出一个已通过去重与资格检查的视频并发送评论，每轮最多评论一个视频
+     *
+     * @param session 浏览器会话
+     * @throws InterruptedException 线程中断异常
+     */
+    private void comment(BrowserSession session)
+            throws InterruptedException {
 
-                // 检查视频发布时间
-                if (checkPubDate(bvid)) {
-                    continue;
-                }
+        var candidate = pipeline.nextEligible(ELIGIBLE_WAIT);
+        if (candidate == null) {
+            LOGGER.debug("暂无可评论的视频 | {}", pipeline.describe());
+            return;
+        }
+        var bvid = candidate.bvid();
+        var deadline = candidate.deadline();
 
-            } catch (IOException | InterruptedException e) {
-                LOGGER.error("获取视频 {} 发布日期时出错", bvid, e);
-                continue;
+        var outcome = CommentPipeline.Outcome.RETRY;
+        try {
+            // 发送评论
+            if (commenter.comment(session, bvid, config.getUrlVideo(bvid), deadline)) {
+                LOGGER.info("已处理 {} 个视频", commentCount.addAndGet(1));
+                outcome = CommentPipeline.Outcome.COMMENTED;
+                backoff.onSuccess();
             }
 
-            try {
-                // 发送评论
-                if (commenter.comment(driver, bvid, config.getUrlVideo(bvid))) {
-                    LOGGER.info("已处理 {} 个视频", commentCount.addAndGet(1));
-                    removeFromToComment(bvid, true);
-                }
-
-            } catch (CommentCooldownException e) {
-                // 触发风控，进入冷却期
-                var cd = config.getCommentCooldown();
-                LOGGER.warn("触发风控，暂停自动评论 {}h {}min {}s: {}",
-                        cd / 3600,
-                        (cd % 3600) / 60,
-                        cd % 60,
-                        e.getMessage()
-                );
-                cooldownEndTime = now() + cd;
-
-            } catch (NotLoggedInException e) {
-                LOGGER.error("未登录，请完成登录: {}", e.getMessage());
-                Login.loginHeadless(driver, config.getUrlHomepage());
+        } catch (DeadlineExceededException e) {
+            // 页面过慢，放弃该视频
+            LOGGER.warn("已放弃视频 {}，{}，已用 {}ms", bvid, e.getMessage(), deadline.spent().toMillis());
+            outcome = CommentPipeline.Outcome.DEADLINE_EXCEEDED;
+
+        } catch (CommentCooldownException e) {
+            // 触发风控，暂停搜索与评论
+            backoff.onRateLimited("评论接口 " + e.getMessage());
+            outcome = CommentPipeline.Outcome.RELEASED;
+
+        } catch (NotLoggedInException e) {
+            // 在后台扫码登录，评论暂停至登录完成
+            login.invalidate(session, e.getMessage());
+            outcome = CommentPipeline.Outcome.RELEASED;
+
+        } catch (InterruptedException e) {
+            outcome = CommentPipeline.Outcome.RELEASED;
+            throw e;
+
+        } catch (WebDriverException e) {
+            // 交由主循环恢复浏览器，关闭过程中的异常不计入失败次数
+            if (!accepting) {
+                outcome = CommentPipeline.Outcome.RELEASED;
+            }
+            throw e;
 
-            } catch (Exception e) {
-                if (accepting) {
-                    LOGGER.error("评论视频 {} 时异常", bvid, e);
-                }
+        } catch (Exception e) {
+            if (accepting) {
+                LOGGER.error("评论视频 {} 时异常", bvid, e);
+            } else {
+                outcome = CommentPipeline.Outcome.RELEASED;
             }
 
-            return;
+        } finally {
+            pipeline.complete(bvid, outcome, deadline.spent());
         }
-
     }
 
     /**
@@ -395,47 +392,148 @@ public class CommentWorker implements Runnable {
      * 当浏览器出现异常时，关闭当前浏览器并重新启动
      */
     private synchronized void recoverDriver() {
-        close();
-        launchDriver();
-        LOGGER.info("评论浏览器已恢复");
+        try {
+            // 先在旧浏览器退出前取消其会话的事件订阅
+            var failed = driver;
+            setDriver(null);
+            setDriver(driverPool.replace(failed));
+            LOGGER.info("评论浏览器已恢复");
+        } catch (Exception e) {
+            setDriver(null);
+            LOGGER.error("评论浏览器启动失败", e);
+        }
     }
 
     /**
-     * 启动评论浏览器
+     * 回收资源占用过高的浏览器
+     * <p>
+     * 在任务间隙检查，避免浏览器在任务中途崩溃
      */
-    private void launchDriver() {
+    private synchronized void recycleDriverIfNeeded() {
+        var reason = DriverWatchdog.checkRecycle(driver, config.getRecycleThresholds());
+        if (reason != null) {
+            LOGGER.info("回收评论浏览器: {}", reason);
+            recoverDriver();
+        }
+    }
+
+    /**
+     * 从驱动池租借评论浏览器
+     *
+     * @return 是否租借成功
+     */
+    private synchronized boolean acquireDriver() {
         try {
-            driver = ChromeUtil.getHeadlessDriver();
-            driver.get(config.getUrlHomepage());
-            ChromeUtil.loadCookies(driver, config.getUrlHomepage());
+            setDriver(driverPool.lease());
+            LOGGER.info("评论浏览器已启动");
+            return true;
         } catch (Exception e) {
+            setDriver(null);
             LOGGER.error("评论浏览器启动失败", e);
+            return false;
         }
     }
 
     /**
-     * 关闭工作线程
+     * 设置当前浏览器及其会话
+     *
+     * @param newDriver 浏览器，可为 null
      */
-    public void shutdown() {
-        accepting = false;
-        close();
-        if (workerThread != null) {
-            workerThread.interrupt();
+    private void setDriver(WebDriver newDriver) {
+        if (driver != null) {
+            loginRequired.remove(driver);
+            sessions.remove(driver);
+        }
+        if (session != null) {
+            session.close();
         }
+        driver = newDriver;
+        session = newDriver != null ? takeSession(newDriver) : null;
+        pendingLogin = newDriver != null ? loginRequired.remove(newDriver) : null;
+    }
+
+    /**
+     * 取出浏览器启动时创建的会话，没有时新建
+     *
+     * @param newDriver 浏览器
+     * @return 浏览器会话
+     */
+    private SeleniumBrowserSession takeSession(WebDriver newDriver) {
+        var existing = sessions.remove(newDriver);
+        return existing != null ? existing : new SeleniumBrowserSession(newDriver);
+    }
+
+    /**
+     * 启动评论浏览器
+     *
+     * @return 已打开主页的浏览器
+     */
+    private WebDriver launchDriver() {
+        var start = System.nanoTime();
+        var newDriver = ChromeUtil.getHeadlessDriver(config.getCommentProfileDir());
+        try {
+            ChromeUtil.blockRequests(newDriver, config.getCommentBlockedUrls());
+
+            // 用户数据目录中已保留最新的登录状态时，无需重放 Cookies
+            var newSession = new SeleniumBrowserSession(newDriver);
+            sessions.put(newDriver, newSession);
+            var restored = ChromeUtil.hasCurrentLoginCookie(newSession, config.getUrlHomepage());
+            if (!restored && !ChromeUtil.loadCookies(newSession)) {
+                loginRequired.put(newDriver, "Cookies 文件不存在");
+            }
+            newSession.navigate(config.getUrlHomepage());
+
+            LOGGER.info("评论浏览器就绪，耗时 {}ms{}",
+                    (System.nanoTime() - start) / 1_000_000,
+                    restored ? "（已复用登录状态）" : ""
+            );
+        } catch (RuntimeException e) {
+            var newSession = sessions.remove(newDriver);
+            if (newSession != null) {
+                newSession.close();
+            }
+            loginRequired.remove(newDriver);
+            ChromeUtil.quitDriver(newDriver);
+            throw e;
+        }
+        return newDriver;
+    }
+
+    /**
+     * 停止接受新任务，进行中的一轮评论继续执行
+     */
+    public void stopAccepting() {
+        accepting = false;
+    }
+
+    /**
+     * 停止流水线并写入尚未保存的处理结果
+     * <p>
+     * 须在进行中的一轮评论结束后调用，以便其结果一并写入
+     */
+    public void flush() {
+        pipeline.stop();
+        LOGGER.info("评论任务已结束，已处理 {} 个视频", commentCount.get());
     }
 
     /**
      * 关闭浏览器
      */
     public synchronized void close() {
+        driverPool.close();
+        loginRequired.clear();
         if (driver != null) {
             try {
-                ChromeUtil.quitDriver(driver);
-                driver = null;
+                var released = driver;
+                setDriver(null);
+                driverPool.release(released);
                 LOGGER.info("评论浏览器已关闭");
             } catch (Exception _) {
             }
         }
+        // 未被租借的备用浏览器的会话
+        sessions.values().forEach(SeleniumBrowserSession::close);
+        sessions.clear();
     }
 
 }
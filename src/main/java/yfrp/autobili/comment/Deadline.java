@@ -0,0 +1,127 @@
+package yfrp.autobili.comment;
+
+import java.time.Duration;
+
+/**
+ * 单个视频的处理时限
+ * <p>
+ * 从检查发布时间开始计时，沿调用链向下传递，各步骤的等待时间不超过剩余时限。
+ * 视频在流水线队列中排队时暂停计时，排队时间不计入时限
+ */
+public class Deadline {
+
+    // 处理时限
+    private final Duration budget;
+    // 暂停前已用时间（纳秒）
+    private long spentBefore = 0;
+    // 本次恢复计时的时间（纳秒），暂停时为 -1
+    private long resumedAt;
+
+    /**
+     * 构造函数
+     *
+     * @param budget 处理时限
+     */
+    private Deadline(Duration budget) {
+        this.budget = budget;
+        this.resumedAt = System.nanoTime();
+    }
+
+    /**
+     * 创建并开始计时
+     *
+     * @param budget 处理时限
+     * @return 处理时限
+     */
+    public static Deadline of(Duration budget) {
+        return new Deadline(budget);
+    }
+
+    /**
+     * 暂停计时，进入队列排队前调用
+     *
+     * @return 当前实例
+     */
+    public synchronized Deadline pause() {
+        if (resumedAt >= 0) {
+            spentBefore += System.nanoTime() - resumedAt;
+            resumedAt = -1;
+        }
+        return this;
+    }
+
+    /**
+     * 恢复计时，从队列中取出后调用
+     *
+     * @return 当前实例
+     */
+    public synchronized Deadline resume() {
+        if (resumedAt < 0) {
+            resumedAt = System.nanoTime();
+        }
+        return this;
+    }
+
+    /**
+     * 获取已用时间
+     *
+     * @return 已用时间，不含暂停期间
+     */
+    public synchronized Duration spent() {
+        var running = resumedAt >= 0 ? System.nanoTime() - resumedAt : 0;
+        return Duration.ofNanos(spentBefore + running);
+    }
+
+    /**
+     * 获取剩余时间
+     *
+     * @return 剩余时间，已超时时为 0
+     */
+    public Duration remaining() {
+        var remaining = budget.minus(spent());
+        return remaining.isNegative() ? Duration.ZERO : remaining;
+    }
+
+    /**
+     * 将等待时间限制在剩余时间内
+     *
+     * @param timeout 步骤自身的超时时间
+     * @return 步骤自身超时时间与剩余时间中的较小值
+     */
+    public Duration cap(Duration timeout) {
+        var remaining = remaining();
+        return timeout.compareTo(remaining) < 0 ? timeout : remaining;
+    }
+
+    /**
+     * 是否已超时
+     *
+     * @return 是否已超时
+     */
+    public boolean isExpired() {
+        return remaining().isZero();
+    }
+
+    /**
+     * 检查是否已超时
+     *
+     * @param step 当前步骤名称，用于异常消息
+     * @throws DeadlineExceededException 已超时
+     */
+    public void check(String step)
+            throws DeadlineExceededException {
+        if (isExpired()) {
+            throw new DeadlineExceededException(step, budget);
+        }
+    }
+
+    /**
+     * 获取处理时限
+     *
+     * @return 处理时限
+     */
+    public Duration budget() {
+        return budget;
+    }
+
+}
@@ -0,0 +1,24 @@
+package yfrp.autobili.comment;
+
+import java.time.Duration;
+
+/**
+ * 处理超时异常
+ * <p>
+ * 当单个视频的处理时间超出时限时抛出此异常，该视频被放弃并留待重新选取
+ */
+public class DeadlineExceededException
+        extends CommentException {
+
+    /**
+     * 构造一个带步骤与时限的处理超时异常
+     *
+     * @param step   超时时所在的步骤
+     * @param budget 处理时限
+     */
+    public DeadlineExceededException(String step,
+                                     Duration budget) {
+        super(step + "时超出处理时限 " + budget.toSeconds() + "s");
+    }
+
+}
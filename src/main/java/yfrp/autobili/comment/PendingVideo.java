@@ -0,0 +1,13 @@
+package yfrp.autobili.comment;
+
+/**
+ * 评论流水线中尚未完成的视频，用于保存与恢复运行检查点
+ *
+ * @param bvid     视频 BV 号
+ * @param failures 已失败次数
+ * @param retryAt  可重试的时间戳（毫秒），不在重试队列中时为 0
+ */
+public record PendingVideo(String bvid,
+                           int failures,
+                           long retryAt) {
+}
@@ -0,0 +1,24 @@
+package yfrp.autobili.comment;
+
+import java.io.IOException;
+
+/**
+ * 视频发布时间查询
+ * <p>
+ * 评论流水线的资格检查阶段通过此接口查询视频发布时间，默认请求视频信息接口
+ */
+@FunctionalInterface
+public interface PubDateLookup {
+
+    /**
+     * 查询视频发布时间
+     *
+     * @param bvid 视频 BV 号
+     * @return 视频发布时间戳（秒），视频无效时为负数
+     * @throws IOException          IO 异常，触发限流时为 {@link yfrp.autobili.vid.RateLimitedException}
+     * @throws InterruptedException 线程中断异常
+     */
+    long pubDate(String bvid)
+            throws IOException, InterruptedException;
+
+}
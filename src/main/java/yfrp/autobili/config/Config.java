@@ -3,9 +3,12 @@ package yfrp.autobili.config;
 import org.apache.commons.collections4.MapUtils;
 import org.apache.commons.lang3.BooleanUtils;
 import org.apache.commons.lang3.math.NumberUtils;
+import org.jetbrains.annotations.Nullable;
+import org.openqa.selenium.PageLoadStrategy;
 import org.yaml.snakeyaml.Yaml;
 import yfrp.autobili.comment.AutoComment;
 import yfrp.autobili.comment.RandomComment;
+import yfrp.autobili.util.DriverWatchdog;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -13,6 +16,7 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.*;
@@ -37,6 +41,8 @@ public class Config {
               enable: YES
             
               interval: 30
+              # 每次间隔随机浮动的百分比
+              interval-jitter: 25
             
               keywords:
                 - 殖
@@ -45,7 +51,15 @@ public class Config {
             
             comment:
               interval: 120
+              # 每次间隔随机浮动的百分比
+              interval-jitter: 25
             
+              # 单个视频的处理时限（秒），包括检查发布时间与浏览器评论，不含排队时间
+              # 超出时限时放弃该视频，留待重新选取
+              deadline-sec: 30
+            
+              # 触发风控后暂停搜索与评论的基础时间，连续触发时逐次翻倍（最多 16 倍），连续评论成功后逐级恢复
+              # 暂停状态保存在 backoff.json 中，重启后继续生效
               cooldown:
                 hour:   2
                 minute: 0
@@ -105,6 +119,77 @@ public class Config {
                   - '🥇赢了'
             
             
+            chrome:
+              # 为每个工作线程预热一个备用浏览器，浏览器故障时可立即切换
+              # 每个备用浏览器额外占用一个浏览器进程的内存
+              # 无法重载
+              # could NOT be reloaded
+              warm-standby: NO
+            
+              # 搜索与评论共用一个浏览器进程，各自使用独立的浏览器上下文（Cookies 与标签页互不影响）
+              # 共用时 recycle.rss-mb 统计的是整个浏览器的内存，超过时重启共享浏览器，两个工作线程各回收一次后迁移到新浏览器
+              # 无法重载
+              # could NOT be reloaded
+              shared-browser: NO
+            
+              # 持久化浏览器用户数据目录，浏览器重启后保留登录状态、HTTP 缓存与 JS 编译缓存
+              # 不设置表示每次启动使用临时目录，取消注释以启用
+              # 启用后每个浏览器（含备用浏览器）占用一个独立目录
+              # 无法重载
+              # could NOT be reloaded
+              # profile-dir:
+              #   search:  'profiles/search'
+              #   comment: 'profiles/comment'
+            
+              # 浏览器资源占用超过任一阈值时，在任务间隙回收浏览器，0 表示不检查
+              recycle:
+                js-heap-mb:  512
+                rss-mb:      2048
+                uptime-hour: 24
+                navigations: 1000
+            
+              # 启用 WebDriver BiDi，通过 WebSocket 接收浏览器推送的日志、导航与网络事件，代替轮询等待页面条件
+              # 共享浏览器模式下不支持
+              # 无法重载
+              # could NOT be reloaded
+              bidi: NO
+            
+              # 页面加载策略与单次导航的时间预算
+              # NORMAL: 等待所有资源加载完成; EAGER: DOM 解析完成即返回; NONE: 导航开始即返回
+              # 导航返回后由各处按需等待所需元素，超出时间预算时停止加载并继续
+              # 无法重载
+              # could NOT be reloaded
+              page-load:
+                strategy:    EAGER
+                timeout-sec: 20
+            
+              # 请求屏蔽规则，浏览器重启后生效
+              # types 可选: font, media, image, stylesheet
+              block:
+                enable: YES
+            
+                search:
+                  types:
+                    - font
+                    - media
+                    - stylesheet
+                  urls:
+                    - '*cm.bilibili.com*'
+                    - '*data.bilibili.com*'
+                    - '*hm.baidu.com*'
+            
+                comment:
+                  types:
+                    - font
+                    - media
+                  urls:
+                    - '*cm.bilibili.com*'
+                    - '*data.bilibili.com*'
+                    - '*hm.baidu.com*'
+                    - '*/x/player/*'
+                    - '*/x/v2/dm/*'
+            
+            
             url:
               placeholder: '{}'
               homepage:    'https://www.bilibili.com/'
@@ -120,8 +205,8 @@ public class Config {
             """;
 
 
-    // 随机数种子，用于关键词随机化
-    private final long SEED = System.currentTimeMillis();
+    // 随机数种子，用于关键词随机化，可由运行检查点恢复
+    private long seed = System.currentTimeMillis();
 
 
     // 搜索间隔最小值（秒）
@@ -129,14 +214,26 @@ public class Config {
     // 评论间隔最小值（秒）
     public static final int MIN_COMMENT_INTERVAL = 20;
 
+    // 资源类型对应的 URL 模式
+    private static final Map<String, List<String>> RESOURCE_TYPE_PATTERNS = Map.of(
+            "font",       List.of("*.woff*", "*.ttf*", "*.otf*"),
+            "media",      List.of("*.m4s*", "*.mp4*", "*.flv*"),
+            "image",      List.of("*.png*", "*.jpg*", "*.jpeg*", "*.gif*", "*.webp*", "*.avif*"),
+            "stylesheet", List.of("*.css*")
+    );
+
     // 搜索配置
     private boolean searchEnabled;
     private int searchInterval;
-    // 搜索关键词列表实例
-    private final List<String> searchKeywordsInstance = new ArrayList<>();
+    private int searchJitter;
+    // 搜索关键词列表实例，重载时整体替换为新的不可变列表
+    private volatile List<String> searchKeywordsInstance = List.of();
 
     // 评论配置
     private int commentInterval;
+    private int commentJitter;
+    // 单个视频的处理时限
+    private Duration commentDeadline;
     // 评论冷却时间（秒）
     private int commentCooldown;
     // 最早发布时间戳
@@ -144,6 +241,27 @@ public class Config {
     // 自动清理延迟时间（秒）
     private int autoClearDelay;
 
+    // 是否预热备用浏览器
+    private boolean warmStandby;
+    // 是否共用一个浏览器进程
+    private boolean sharedBrowser;
+    // 搜索浏览器用户数据目录
+    private Path searchProfileDir;
+    // 评论浏览器用户数据目录
+    private Path commentProfileDir;
+    // 浏览器回收阈值
+    private DriverWatchdog.Thresholds recycleThresholds;
+    // 是否启用 WebDriver BiDi
+    private boolean biDi;
+    // 页面加载策略
+    private PageLoadStrategy pageLoadStrategy;
+    // 单次导航的时间预算
+    private Duration pageLoadTimeout;
+    // 搜索浏览器屏蔽的 URL 模式，重载时整体替换为新的不可变列表
+    private volatile List<String> searchBlockedUrls = List.of();
+    // 评论浏览器屏蔽的 URL 模式，重载时整体替换为新的不可变列表
+    private volatile List<String> commentBlockedUrls = List.of();
+
     // URL 替换占位符
     private String urlPlaceholder;
     // 主页 URL
@@ -234,15 +352,15 @@ public class Config {
                 getInt(searchMap, "interval", 30),
                 MIN_SEARCH_INTERVAL
         );
+        this.searchJitter = Math.clamp(getInt(searchMap, "interval-jitter", 25), 0, 100);
         var keywords = new ArrayList<>(getStringArray(
                 searchMap,
                 "keywords",
                 new String[]{"殖", "公知"}
         ));
         // 随机化关键词顺序
-        Collections.shuffle(keywords, new Random(SEED));
-        this.searchKeywordsInstance.clear();
-        this.searchKeywordsInstance.addAll(keywords);
+        Collections.shuffle(keywords, new Random(seed));
+        this.searchKeywordsInstance = List.copyOf(keywords);
 
         // 解析评论配置
         Map<String, Object> commentMap = getMap(config, "comment");
@@ -250,6 +368,8 @@ public class Config {
                 getInt(commentMap, "interval", 120),
                 MIN_COMMENT_INTERVAL
         );
+        this.commentJitter = Math.clamp(getInt(commentMap, "interval-jitter", 25), 0, 100);
+        this.commentDeadline = Duration.ofSeconds(Math.max(getInt(commentMap, "deadline-sec", 30), 5));
 
         // 解析评论冷却配置
         Map<String, Object> cooldownMap = getMap(commentMap, "cooldown");
@@ -275,6 +395,37 @@ public class Config {
         this.autoClearDelay = getInt(autoClearMap, "day",  10) * 86400 +
                               getInt(autoClearMap, "hour", 0 ) * 3600;
 
+        // 解析浏览器配置
+        Map<String, Object> chromeMap = getMap(config, "chrome");
+        this.warmStandby = getBoolean(chromeMap, "warm-standby", false);
+        this.sharedBrowser = getBoolean(chromeMap, "shared-browser", false);
+        this.biDi = getBoolean(chromeMap, "bidi", false);
+
+        // 解析用户数据目录
+        Map<String, Object> profileMap = getMap(chromeMap, "profile-dir");
+        this.searchProfileDir  = getPath(profileMap, "search");
+        this.commentProfileDir = getPath(profileMap, "comment");
+
+        // 解析浏览器回收阈值
+        Map<String, Object> recycleMap = getMap(chromeMap, "recycle");
+        this.recycleThresholds = new DriverWatchdog.Thresholds(
+                getInt(recycleMap, "js-heap-mb",  512 ),
+                getInt(recycleMap, "rss-mb",      2048),
+                Duration.ofHours(getInt(recycleMap, "uptime-hour", 24)),
+                getInt(recycleMap, "navigations", 1000)
+        );
+
+        // 解析页面加载策略
+        Map<String, Object> pageLoadMap = getMap(chromeMap, "page-load");
+        this.pageLoadStrategy = getPageLoadStrategy(pageLoadMap, "strategy", PageLoadStrategy.EAGER);
+        this.pageLoadTimeout  = Duration.ofSeconds(getInt(pageLoadMap, "timeout-sec", 20));
+
+        // 解析请求屏蔽配置
+        Map<String, Object> blockMap = getMap(chromeMap, "block");
+        var blockEnabled = getBoolean(blockMap, "enable", true);
+        this.searchBlockedUrls  = blockEnabled ? List.copyOf(getBlockedUrls(getMap(blockMap, "search")))  : List.of();
+        this.commentBlockedUrls = blockEnabled ? List.copyOf(getBlockedUrls(getMap(blockMap, "comment"))) : List.of();
+
         // 解析 URL 配置
         Map<String, Object> urlMap = getMap(config, "url");
         this.urlPlaceholder = MapUtils.getString(urlMap, "placeholder", "{}");
@@ -358,6 +509,59 @@ public class Config {
         return List.of(defaultVal);
     }
 
+    /**
+     * 从配置映射中获取路径
+     *
+     * @param map 配置映射
+     * @param key 键名
+     * @return 路径，未配置或为空时返回 null
+     */
+    @Nullable
+    private static Path getPath(Map<String, Object> map,
+                                String key) {
+
+        var v = MapUtils.getString(map, key, "");
+        return v.isBlank() ? null : Path.of(v);
+    }
+
+    /**
+     * 从配置映射中获取页面加载策略
+     *
+     * @param map        配置映射
+     * @param key        键名
+     * @param defaultVal 默认值
+     * @return 页面加载策略，无法识别时返回默认值
+     */
+    private static PageLoadStrategy getPageLoadStrategy(Map<String, Object> map,
+                                                        String key,
+                                                        PageLoadStrategy defaultVal) {
+
+        var v = MapUtils.getString(map, key, "");
+        try {
+            return v.isBlank() ? defaultVal : PageLoadStrategy.valueOf(v.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return defaultVal;
+        }
+    }
+
+    /**
+     * 从屏蔽配置中获取 URL 模式列表
+     * <p>
+     * 资源类型会被展开为对应的 URL 模式
+     *
+     * @param map 屏蔽配置映射
+     * @return URL 模式列表
+     */
+    private static List<String> getBlockedUrls(Map<String, Object> map) {
+
+        var patterns = new LinkedHashSet<String>();
+        for (var type : getStringArray(map, "types", new String[0])) {
+            patterns.addAll(RESOURCE_TYPE_PATTERNS.getOrDefault(type.toLowerCase(), List.of()));
+        }
+        patterns.addAll(getStringArray(map, "urls", new String[0]));
+        return new ArrayList<>(patterns);
+    }
+
 
     /**
      * 获取搜索启用状态
@@ -377,10 +581,40 @@ public class Config {
         return searchInterval;
     }
 
+    /**
+     * 获取搜索间隔随机浮动的百分比
+     *
+     * @return 浮动百分比，范围 [0, 100]
+     */
+    public int getSearchJitter() {
+        return searchJitter;
+    }
+
+    /**
+     * 获取关键词随机化使用的随机数种子
+     *
+     * @return 随机数种子
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * 设置关键词随机化使用的随机数种子，并按新种子重新排列关键词
+     * <p>
+     * 用于恢复上次运行的关键词顺序
+     *
+     * @param seed 随机数种子
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+        loadConfig();
+    }
+
     /**
      * 获取搜索关键词列表
      *
-     * @return 搜索关键词列表
+     * @return 搜索关键词列表，不可修改，重载配置后需重新获取
      */
     public List<String> getSearchKeywordsInstance() {
         return searchKeywordsInstance;
@@ -395,8 +629,28 @@ public class Config {
         return commentInterval;
     }
 
+    /**
+     * 获取评论间隔随机浮动的百分比
+     *
+     * @return 浮动百分比，范围 [0, 100]
+     */
+    public int getCommentJitter() {
+        return commentJitter;
+    }
+
+    /**
+     * 获取单个视频的处理时限
+     *
+     * @return 处理时限，不少于 5s
+     */
+    public Duration getCommentDeadline() {
+        return commentDeadline;
+    }
+
     /**
      * 获取评论冷却时间
+     * <p>
+     * 作为风控退避的基础暂停时间
      *
      * @return 评论冷却时间（秒）
      */
@@ -422,6 +676,98 @@ public class Config {
         return autoClearDelay;
     }
 
+    /**
+     * 获取是否预热备用浏览器
+     *
+     * @return 是否预热备用浏览器
+     */
+    public boolean isWarmStandby() {
+        return warmStandby;
+    }
+
+    /**
+     * 获取是否共用一个浏览器进程
+     *
+     * @return 是否共用一个浏览器进程
+     */
+    public boolean isSharedBrowser() {
+        return sharedBrowser;
+    }
+
+    /**
+     * 获取搜索浏览器用户数据目录
+     *
+     * @return 用户数据目录，未配置时返回 null
+     */
+    @Nullable
+    public Path getSearchProfileDir() {
+        return searchProfileDir;
+    }
+
+    /**
+     * 获取评论浏览器用户数据目录
+     *
+     * @return 用户数据目录，未配置时返回 null
+     */
+    @Nullable
+    public Path getCommentProfileDir() {
+        return commentProfileDir;
+    }
+
+    /**
+     * 获取浏览器回收阈值
+     *
+     * @return 浏览器回收阈值
+     */
+    public DriverWatchdog.Thresholds getRecycleThresholds() {
+        return recycleThresholds;
+    }
+
+    /**
+     * 获取是否启用 WebDriver BiDi
+     *
+     * @return 是否启用 WebDriver BiDi
+     */
+    public boolean isBiDi() {
+        return biDi;
+    }
+
+    /**
+     * 获取页面加载策略
+     *
+     * @return 页面加载策略
+     */
+    public PageLoadStrategy getPageLoadStrategy() {
+        return pageLoadStrategy;
+    }
+
+    /**
+     * 获取单次导航的时间预算
+     *
+     * @return 时间预算
+     */
+    public Duration getPageLoadTimeout() {
+        return pageLoadTimeout;
+    }
+
+    /**
+     * 获取搜索浏览器屏蔽的 URL 模式
+     *
+     * @return URL 模式列表，不可修改
+     */
+    public List<String> getSearchBlockedUrls() {
+        return searchBlockedUrls;
+    }
+
+    /**
+     * 获取评论浏览器屏蔽的 URL 模式
+     *
+     * @return URL 模式列表，不可修改
+     */
+    public List<String> getCommentBlockedUrls() {
+        return commentBlockedUrls;
+    }
+
     /**
      * 获取 URL 替换占位符
      *
@@ -0,0 +1,198 @@
+package yfrp.autobili.util;
+
+import org.openqa.selenium.json.Json;
+import org.openqa.selenium.json.JsonException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * 风控退避控制器
+ * <p>
+ * 收到平台限流信号（评论接口 -412 / -509 / 12015、视频信息接口被拦截等）时暂停搜索与评论：
+ * 连续触发时暂停时间按等级指数增长，连续成功一定次数后等级逐级下降。
+ * 状态保存在 backoff.json 中，重启后仍会等待未结束的暂停
+ */
+public class BackoffController {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BackoffController.class);
+
+    // 存储格式版本
+    private static final int VERSION = 1;
+    // 最高退避等级，暂停时间最长为基础时间的 2^(MAX_LEVEL-1) 倍
+    private static final int MAX_LEVEL = 5;
+    // 等级下降一级所需的连续成功次数
+    private static final int DECAY_SUCCESSES = 5;
+
+    private static final Json JSON = new Json();
+
+    // 状态文件
+    private final Path file;
+    // 基础暂停时间，每次计算时读取，可随配置变化
+    private final Supplier<Duration> baseDelay;
+
+    // 当前退避等级，0 表示未触发
+    private int level = 0;
+    // 暂停结束时间
+    private Instant until = Instant.EPOCH;
+    // 自上次限流信号或等级下降以来的连续成功次数
+    private int successes = 0;
+
+    /**
+     * 构造函数
+     *
+     * @param file      状态文件
+     * @param baseDelay 基础暂停时间
+     */
+    public BackoffController(Path file,
+                             Supplier<Duration> baseDelay) {
+        this.file = file;
+        this.baseDelay = baseDelay;
+    }
+
+    /**
+     * 从状态文件恢复退避状态
+     * <p>
+     * 文件不存在或格式错误时从初始状态开始
+     */
+    public synchronized void load() {
+        if (Files.notExists(file)) {
+            return;
+        }
+
+        try {
+            Map<String, Object> root = JSON.toType(Files.readString(file, StandardCharsets.UTF_8), Json.MAP_TYPE);
+            if (!(root.get("version") instanceof Number version) || version.intValue() > VERSION) {
+                throw new IOException("不支持的退避状态文件版本: " + root.get("version"));
+            }
+            level = Math.clamp(((Number) root.getOrDefault("level", 0)).intValue(), 0, MAX_LEVEL);
+            until = Instant.ofEpochMilli(((Number) root.getOrDefault("until", 0)).longValue());
+            successes = ((Number) root.getOrDefault("successes", 0)).intValue();
+
+        } catch (IOException | JsonException | ClassCastException e) {
+            LOGGER.warn("读取退避状态失败，从初始状态开始: {}", e.getMessage());
+            return;
+        }
+
+        if (isActive()) {
+            LOGGER.info("恢复风控退避：等级 {}，暂停至 {}", level, format(until));
+        }
+    }
+
+    /**
+     * 是否处于暂停中
+     *
+     * @return 是否暂停
+     */
+    public synchronized boolean isActive() {
+        return Instant.now().isBefore(until);
+    }
+
+    /**
+     * 获取剩余暂停时间
+     *
+     * @return 剩余暂停时间，未暂停时为 0
+     */
+    public synchronized Duration remaining() {
+        var remaining = Duration.between(Instant.now(), until);
+        return remaining.isNegative() ? Duration.ZERO : remaining;
+    }
+
+    /**
+     * 收到限流信号，提升退避等级并暂停
+     * <p>
+     * 暂停期间重复收到的信号（例如并发请求同时被拦截）不再提升等级
+     *
+     * @param reason 信号来源，用于日志
+     */
+    public synchronized void onRateLimited(String reason) {
+        if (isActive()) {
+            LOGGER.debug("暂停期间再次收到限流信号: {}", reason);
+            return;
+        }
+
+        level = Math.min(level + 1, MAX_LEVEL);
+        successes = 0;
+        var delay = baseDelay.get().multipliedBy(1L << (level - 1));
+        until = Instant.now().plus(delay);
+        LOGGER.warn("触发风控 ({})，退避等级 {}，暂停 {}h {}min {}s，至 {}",
+                reason,
+                level,
+                delay.toHours(),
+                delay.toMinutesPart(),
+                delay.toSecondsPart(),
+                format(until)
+        );
+        save();
+    }
+
+    /**
+     * 记录一次成功的请求，连续成功足够次数后下降一级
+     */
+    public synchronized void onSuccess() {
+        if (level == 0) {
+            return;
+        }
+
+        if (++successes >= DECAY_SUCCESSES) {
+            level--;
+            successes = 0;
+            LOGGER.info("连续成功 {} 次，退避等级下降至 {}", DECAY_SUCCESSES, level);
+        }
+        save();
+    }
+
+    /**
+     * 获取退避状态，用于状态日志
+     *
+     * @return 退避状态描述
+     */
+    public synchronized String describe() {
+        return isActive()
+               ? "退避等级 %d，剩余 %ds".formatted(level, remaining().toSeconds())
+               : "退避等级 %d，未暂停".formatted(level);
+    }
+
+    /**
+     * 保存退避状态
+     * <p>
+     * 先写入临时文件再替换，避免写入中断导致文件损坏
+     */
+    private void save() {
+        var tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            Files.writeString(tmp, JSON.toJson(Map.of(
+                    "version", VERSION,
+                    "level", level,
+                    "until", until.toEpochMilli(),
+                    "successes", successes
+            )), StandardCharsets.UTF_8);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LOGGER.error("保存退避状态失败", e);
+        }
+    }
+
+    /**
+     * 格式化时间为可读字符串
+     *
+     * @param instant 时间
+     * @return 格式化后的时间字符串
+     */
+    private static String format(Instant instant) {
+        return instant.atZone(ZoneId.systemDefault())
+                .format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
+    }
+
+}
@@ -0,0 +1,145 @@
+package yfrp.autobili.util;
+
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.json.Json;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 浏览器级 CDP 连接
+ * <p>
+ * 直接连接浏览器的调试 WebSocket，用于执行页面会话无权执行的命令，
+ * 例如创建和销毁浏览器上下文
+ */
+class CdpConnection implements AutoCloseable {
+
+    private static final Json JSON = new Json();
+
+    // 命令超时时间
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    // 命令编号
+    private final AtomicInteger nextId = new AtomicInteger(0);
+    // 发送锁，WebSocket 同一时间只允许一个未完成的发送
+    private final Object sendLock = new Object();
+    // 等待响应的命令
+    private final Map<Integer, CompletableFuture<Map<String, Object>>> pending = new ConcurrentHashMap<>();
+    // WebSocket 连接
+    private final WebSocket webSocket;
+
+    /**
+     * 构造函数
+     *
+     * @param webSocketUrl 浏览器调试 WebSocket 地址
+     */
+    CdpConnection(URI webSocketUrl) {
+        this.webSocket = HttpClient.newHttpClient()
+                .newWebSocketBuilder()
+                .connectTimeout(TIMEOUT)
+                .buildAsync(webSocketUrl, new Listener())
+                .join();
+    }
+
+    /**
+     * 发送 CDP 命令并等待结果
+     * <p>
+     * 发送过程串行执行，发送失败时立即抛出异常，而不是等待响应超时
+     *
+     * @param method 命令名称
+     * @param params 命令参数
+     * @return 命令结果
+     */
+    Map<String, Object> send(String method,
+                             Map<String, Object> params) {
+
+        var id = nextId.incrementAndGet();
+        var future = new CompletableFuture<Map<String, Object>>();
+        pending.put(id, future);
+
+        var deadline = System.nanoTime() + TIMEOUT.toNanos();
+        var message = JSON.toJson(Map.of("id", id, "method", method, "params", params));
+        try {
+            synchronized (sendLock) {
+                try {
+                    webSocket.sendText(message, true).get(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+                } catch (ExecutionException | TimeoutException e) {
+                    throw new WebDriverException("CDP 命令发送失败: " + method, e);
+                }
+            }
+            return future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new WebDriverException("CDP 命令被中断: " + method, e);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new WebDriverException("CDP 命令失败: " + method, e);
+        } finally {
+            pending.remove(id);
+        }
+    }
+
+    /**
+     * 关闭连接
+     */
+    @Override
+    public void close() {
+        webSocket.abort();
+        pending.values().forEach(f -> f.completeExceptionally(new WebDriverException("CDP 连接已关闭")));
+    }
+
+    /**
+     * WebSocket 消息监听器
+     * <p>
+     * 拼接分片消息，并将响应分发给对应的命令
+     */
+    private class Listener implements WebSocket.Listener {
+
+        // 未完成的分片消息
+        private final StringBuilder buffer = new StringBuilder();
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public CompletionStage<?> onText(WebSocket webSocket,
+                                         CharSequence data,
+                                         boolean last) {
+
+            buffer.append(data);
+            if (last) {
+                Map<String, Object> message = JSON.toType(buffer.toString(), Json.MAP_TYPE);
+                buffer.setLength(0);
+
+                if (message.get("id") instanceof Number id) {
+                    var future = pending.get(id.intValue());
+                    if (future != null) {
+                        if (message.get("error") instanceof Map<?, ?> error) {
+                            future.completeExceptionally(new WebDriverException(String.valueOf(error.get("message"))));
+                        } else {
+                            future.complete((Map<String, Object>) message.getOrDefault("result", Map.of()));
+                        }
+                    }
+                }
+            }
+
+            webSocket.request(1);
+            return null;
+        }
+
+        @Override
+        public void onError(WebSocket webSocket,
+                            Throwable error) {
+            pending.values().forEach(f -> f.completeExceptionally(error));
+        }
+    }
+
+}
@@ -0,0 +1,126 @@
+package yfrp.autobili.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 持久化浏览器用户数据目录
+ * <p>
+ * 每个目录下按槽位划分子目录，正在使用和备用的浏览器各占一个槽位，
+ * 避免多个浏览器同时使用同一个用户数据目录
+ */
+class ChromeProfile {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ChromeProfile.class);
+
+    // 每个目录的最大槽位数
+    private static final int MAX_SLOTS = 4;
+
+    // Chrome 用户数据目录锁文件
+    private static final List<String> LOCK_FILES = List.of("SingletonLock", "SingletonSocket", "SingletonCookie", "lockfile");
+
+    // 正在使用的槽位目录
+    private static final Set<Path> IN_USE = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 占用一个空闲槽位
+     * <p>
+     * 清理崩溃进程遗留的锁文件，跳过仍被其他浏览器进程占用的槽位
+     *
+     * @param baseDir 用户数据目录
+     * @return 槽位目录
+     * @throws IOException 没有空闲槽位或无法创建目录
+     */
+    static Path acquire(Path baseDir)
+            throws IOException {
+
+        synchronized (IN_USE) {
+            for (int slot = 0; slot < MAX_SLOTS; slot++) {
+                var dir = baseDir.toAbsolutePath().resolve("slot-" + slot);
+                if (IN_USE.contains(dir) || isLockedByOtherProcess(dir)) {
+                    continue;
+                }
+
+                Files.createDirectories(dir);
+                clearStaleLock(dir);
+                IN_USE.add(dir);
+                return dir;
+            }
+        }
+
+        throw new IOException("用户数据目录 " + baseDir + " 没有空闲槽位");
+    }
+
+    /**
+     * 释放槽位
+     *
+     * @param dir 槽位目录
+     */
+    static void release(Path dir) {
+        if (dir != null) {
+            IN_USE.remove(dir);
+        }
+    }
+
+    /**
+     * 检查槽位是否被仍在运行的浏览器进程占用
+     * <p>
+     * Linux 与 macOS 下 SingletonLock 是指向 "主机名-进程号" 的符号链接
+     *
+     * @param dir 槽位目录
+     * @return 是否被占用
+     */
+    private static boolean isLockedByOtherProcess(Path dir) {
+
+        // Windows 下被占用的 lockfile 无法删除
+        try {
+            Files.deleteIfExists(dir.resolve("lockfile"));
+        } catch (IOException e) {
+            return true;
+        }
+
+        var lock = dir.resolve("SingletonLock");
+        if (!Files.isSymbolicLink(lock)) {
+            return false;
+        }
+
+        try {
+            var target = Files.readSymbolicLink(lock).toString();
+            var split = target.lastIndexOf('-');
+            var host = target.substring(0, split);
+            var pid = Long.parseLong(target.substring(split + 1));
+
+            return host.equals(InetAddress.getLocalHost().getHostName()) &&
+                   ProcessHandle.of(pid).map(ProcessHandle::isAlive).orElse(false);
+
+        } catch (IOException | RuntimeException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 删除崩溃或被强制结束的浏览器遗留的锁文件
+     *
+     * @param dir 槽位目录
+     */
+    private static void clearStaleLock(Path dir) {
+        for (var name : LOCK_FILES) {
+            try {
+                if (Files.deleteIfExists(dir.resolve(name))) {
+                    LOGGER.info("已清理用户数据目录 {} 遗留的锁文件 {}", dir, name);
+                }
+            } catch (IOException e) {
+                LOGGER.warn("清理锁文件 {} 失败: {}", dir.resolve(name), e.getMessage());
+            }
+        }
+    }
+
+}
@@ -1,84 +1,529 @@
 package yfrp.autobili.util;
 
+import org.jetbrains.annotations.Nullable;
 import org.openqa.selenium.Cookie;
+import org.openqa.selenium.JavascriptException;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.PageLoadStrategy;
+import org.openqa.selenium.SessionNotCreatedException;
+import org.openqa.selenium.TimeoutException;
 import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.bidi.HasBiDi;
 import org.openqa.selenium.chrome.ChromeDriver;
 import org.openqa.selenium.chrome.ChromeOptions;
+import org.openqa.selenium.chromium.HasCdp;
+import org.openqa.selenium.support.ui.WebDriverWait;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import yfrp.autobili.browser.BrowserSession;
 
-import java.io.*;
-import java.nio.file.Files;
+import java.io.IOException;
 import java.nio.file.Path;
-import java.util.Collections;
-import java.util.HashSet;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 public class ChromeUtil {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ChromeUtil.class);
 
-    private static final String COOKIE_FILE = "cookies.txt";
+    // 登录状态 Cookie 名称
+    private static final String LOGIN_COOKIE = "SESSDATA";
+
+    private static final Map<WebDriver, DriverStats> ACTIVE_DRIVERS = new ConcurrentHashMap<>();
+
+    private static final AtomicInteger INSTANCE_COUNTER = new AtomicInteger(0);
+
+    // 无头浏览器启动参数
+    private static final List<String> HEADLESS_ARGUMENTS = List.of(
+            "--headless=new",
+            "--no-sandbox",
+
+            "--mute-audio",
+            "--blink-settings=imagesEnabled=false",
+
+            "--disable-gpu",
+            "--disable-dev-shm-usage",
+
+            "--disable-extensions",
+            "--disable-plugins",
+            "--disable-default-apps",
+
+            "--disable-background-networking",
+            "--disable-background-timer-throttling",
+            "--disable-backgrounding-occluded-windows",
+            "--disable-renderer-backgrounding",
+
+            "--disable-sync",
+            "--disable-translate",
+            "--disable-notifications",
+            "--disable-infobars",
+
+            "--silent"
+    );
+
+    // 共享浏览器模式下，驱动对应的共享浏览器与浏览器上下文
+    private static final Map<WebDriver, SharedContext> DRIVER_CONTEXTS = new ConcurrentHashMap<>();
+    // 已停用、仍有上下文在使用的共享浏览器
+    private static final Set<SharedBrowser> RETIRED_BROWSERS = ConcurrentHashMap.newKeySet();
+    // 驱动占用的持久化用户数据目录槽位
+    private static final Map<WebDriver, Path> DRIVER_PROFILES = new ConcurrentHashMap<>();
+    // 共享浏览器锁
+    private static final Object SHARED_LOCK = new Object();
+
+    // NONE 策略下标记导航前的旧文档，用于判断新文档是否已提交
+    private static final String SCRIPT_MARK_STALE = "window.autobiliStaleDocument = true;";
+    private static final String SCRIPT_IS_NEW_DOCUMENT = "return !window.autobiliStaleDocument;";
+
+    // 是否所有驱动共享同一个浏览器进程
+    private static volatile boolean sharedMode = false;
+    // 是否启用 WebDriver BiDi
+    private static volatile boolean biDi = false;
+    // 页面加载策略
+    private static volatile PageLoadStrategy pageLoadStrategy = PageLoadStrategy.NORMAL;
+    // 单次导航的时间预算
+    private static volatile Duration pageLoadTimeout = Duration.ofSeconds(300);
+    // 共享浏览器实例
+    private static SharedBrowser sharedBrowser;
 
-    private static final Set<WebDriver> ACTIVE_DRIVERS = Collections.synchronizedSet(new HashSet<>());
+    /**
+     * 驱动所在的共享浏览器上下文
+     *
+     * @param browser   共享浏览器
+     * @param contextId 浏览器上下文编号
+     */
+    private record SharedContext(SharedBrowser browser,
+                                 String contextId) {
+    }
 
 
-    public static ChromeDriver getHeadlessDriver() {
-        ChromeDriver driver = new ChromeDriver(getHeadlessOptions());
-        ACTIVE_DRIVERS.add(driver); // 追踪驱动实例
-        return driver;
+    /**
+     * 设置是否所有驱动共享同一个浏览器进程
+     * <p>
+     * 共享时每个驱动使用独立的浏览器上下文，Cookies 与标签页互不影响
+     *
+     * @param shared 是否共享
+     */
+    public static void setSharedMode(boolean shared) {
+        sharedMode = shared;
     }
 
-    private static ChromeOptions getHeadlessOptions() {
+    /**
+     * 设置是否启用 WebDriver BiDi
+     * <p>
+     * 启用后驱动额外建立一条 WebSocket 连接，用于接收浏览器推送的事件；
+     * 对之后启动的浏览器生效，共享浏览器模式下不支持
+     *
+     * @param enabled 是否启用
+     */
+    public static void setBiDi(boolean enabled) {
+        biDi = enabled;
+    }
 
-        ChromeOptions options = new ChromeOptions();
+    /**
+     * 检查驱动是否已建立 BiDi 连接
+     *
+     * @param driver WebDriver 实例
+     * @return 是否已建立 BiDi 连接
+     */
+    public static boolean hasBiDi(WebDriver driver) {
+        try {
+            return driver instanceof HasBiDi hasBiDi && hasBiDi.maybeGetBiDi().isPresent();
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
 
-        options.addArguments(
-                "--headless=new",
-                "--no-sandbox",
+    /**
+     * 设置页面加载策略与单次导航的时间预算
+     * <p>
+     * 对之后启动的浏览器生效
+     *
+     * @param strategy 页面加载策略
+     * @param timeout  单次导航的时间预算
+     */
+    public static void setPageLoad(PageLoadStrategy strategy,
+                                   Duration timeout) {
+        pageLoadStrategy = strategy;
+        pageLoadTimeout = timeout;
+    }
 
-                "--mute-audio",
-                "--blink-settings=imagesEnabled=false",
+    /**
+     * 解析并缓存浏览器与驱动程序路径
+     * <p>
+     * 应在启动浏览器之前调用，离线重启时直接使用缓存的路径
+     */
+    public static void resolveBinaries() {
+        DriverBinaries.resolve();
+    }
 
-                "--disable-gpu",
-                "--disable-dev-shm-usage",
+    public static ChromeDriver getHeadlessDriver() {
+        return getHeadlessDriver(null);
+    }
 
-                "--disable-extensions",
-                "--disable-plugins",
-                "--disable-default-apps",
+    /**
+     * 启动无头浏览器
+     *
+     * @param profileDir 持久化用户数据目录，为 null 时使用临时目录；共享浏览器模式下忽略
+     * @return 驱动实例
+     */
+    public static ChromeDriver getHeadlessDriver(@Nullable Path profileDir) {
+        var start = System.nanoTime();
 
-                "--disable-background-networking",
-                "--disable-background-timer-throttling",
-                "--disable-backgrounding-occluded-windows",
-                "--disable-renderer-backgrounding",
+        if (sharedMode && profileDir != null) {
+            LOGGER.warn("共享浏览器模式下不支持持久化用户数据目录，已忽略 {}", profileDir);
+        }
+        if (sharedMode && biDi) {
+            LOGGER.warn("共享浏览器模式下不支持 BiDi，已忽略");
+        }
 
-                "--disable-sync",
-                "--disable-translate",
-                "--disable-notifications",
-                "--disable-infobars",
+        ChromeDriver driver = sharedMode ? newContextDriver() : newBrowserDriver(profileDir);
 
-                "--silent"
+        LOGGER.info("浏览器已启动 | 模式: {}{}, 耗时: {}ms, 浏览器总内存: {}MB",
+                sharedMode ? "共享" : "独立",
+                hasBiDi(driver) ? " (BiDi)" : "",
+                (System.nanoTime() - start) / 1_000_000,
+                getTotalRssMb()
         );
+        return driver;
+    }
 
+    /**
+     * 启动独立的浏览器进程
+     *
+     * @return 驱动实例
+     */
+    private static ChromeDriver newBrowserDriver(@Nullable Path profileDir) {
+        var instanceId = INSTANCE_COUNTER.incrementAndGet();
+
+        var options = newOptions();
+        options.addArguments(HEADLESS_ARGUMENTS);
+        if (biDi) {
+            options.enableBiDi();
+        }
+        // 标记浏览器进程，用于统计内存占用
+        options.addArguments(DriverStats.INSTANCE_SWITCH + instanceId);
+
+        // 占用持久化用户数据目录的一个槽位
+        Path slotDir = null;
+        if (profileDir != null) {
+            try {
+                slotDir = ChromeProfile.acquire(profileDir);
+                options.addArguments("--user-data-dir=" + slotDir);
+            } catch (IOException e) {
+                LOGGER.warn("无法使用用户数据目录，改用临时目录: {}", e.getMessage());
+            }
+        }
+
+        var browserPath = DriverBinaries.getBrowserPath();
+        if (browserPath != null) {
+            options.setBinary(browserPath.toFile());
+        }
+
+        try {
+            ChromeDriver driver;
+            try {
+                driver = new ChromeDriver(options);
+            } catch (SessionNotCreatedException e) {
+                // 缓存的驱动与浏览器版本不匹配时重新解析后重试一次
+                if (!DriverBinaries.invalidate()) {
+                    throw e;
+                }
+                if (DriverBinaries.getBrowserPath() != null) {
+                    options.setBinary(DriverBinaries.getBrowserPath().toFile());
+                }
+                driver = new ChromeDriver(options);
+            }
+            ACTIVE_DRIVERS.put(driver, new DriverStats(instanceId)); // 追踪驱动实例
+            if (slotDir != null) {
+                DRIVER_PROFILES.put(driver, slotDir);
+            }
+            return driver;
+
+        } catch (RuntimeException e) {
+            ChromeProfile.release(slotDir);
+            throw e;
+        }
+    }
+
+    /**
+     * 创建带有页面加载策略的浏览器选项
+     *
+     * @return 浏览器选项
+     */
+    private static ChromeOptions newOptions() {
+        var options = new ChromeOptions();
+        options.setPageLoadStrategy(pageLoadStrategy);
+        options.setPageLoadTimeout(pageLoadTimeout);
         return options;
     }
 
     /**
-     * 彻底销毁所有已创建且未关闭的驱动进程
+     * 在共享浏览器中创建独立的浏览器上下文，并连接驱动
+     *
+     * @return 驱动实例
      */
-    public static void cleanupAllDrivers() {
-        synchronized (ACTIVE_DRIVERS) {
-
-            var it = ACTIVE_DRIVERS.iterator();
-            while (it.hasNext()) {
-                WebDriver driver = it.next();
-                try {
-                    driver.quit();
-                } catch (Exception _) {
+    private static ChromeDriver newContextDriver() {
+        var browser = getSharedBrowser();
+        var context = browser.createContext();
+
+        try {
+            var options = newOptions();
+            options.setExperimentalOption("debuggerAddress", browser.getDebuggerAddress());
+
+            ChromeDriver driver = new ChromeDriver(options);
+            driver.switchTo().window(context.targetId());
+
+            ACTIVE_DRIVERS.put(driver, new DriverStats(browser.getInstanceId())); // 追踪驱动实例
+            DRIVER_CONTEXTS.put(driver, new SharedContext(browser, context.contextId()));
+            return driver;
+
+        } catch (RuntimeException e) {
+            browser.disposeContext(context.contextId());
+            throw e;
+        }
+    }
+
+    /**
+     * 获取共享浏览器，未启动、已退出或已停用时重新启动
+     * <p>
+     * 已停用但仍有上下文在使用的旧浏览器在最后一个上下文销毁后关闭
+     *
+     * @return 共享浏览器
+     */
+    private static SharedBrowser getSharedBrowser() {
+        synchronized (SHARED_LOCK) {
+            if (sharedBrowser == null || !sharedBrowser.isAlive() || sharedBrowser.getRetireReason() != null) {
+                if (sharedBrowser != null) {
+                    if (sharedBrowser.isAlive() && hasContexts(sharedBrowser)) {
+                        RETIRED_BROWSERS.add(sharedBrowser);
+                    } else {
+                        sharedBrowser.close();
+                    }
                 }
-                it.remove();
+                sharedBrowser = SharedBrowser.launch(INSTANCE_COUNTER.incrementAndGet(), HEADLESS_ARGUMENTS);
+            }
+            return sharedBrowser;
+        }
+    }
+
+    /**
+     * 检查共享浏览器中是否还有驱动的上下文
+     *
+     * @param browser 共享浏览器
+     * @return 是否还有上下文
+     */
+    private static boolean hasContexts(SharedBrowser browser) {
+        return DRIVER_CONTEXTS.values()
+                .stream()
+                .anyMatch(context -> context.browser() == browser);
+    }
+
+    /**
+     * 检查驱动所在的共享浏览器是否需要重启
+     * <p>
+     * 共享浏览器的内存由所有上下文共同占用，回收单个上下文无法使其下降。
+     * 整个浏览器的内存超过上限时停用该浏览器：之后的上下文在新的共享浏览器中创建，
+     * 各驱动回收一次即迁移到新浏览器，旧浏览器在最后一个上下文销毁后关闭
+     *
+     * @param driver WebDriver 实例
+     * @param rssMb  整个浏览器的常驻内存上限（MB），0 表示不检查
+     * @return 驱动所在的共享浏览器已停用的原因，驱动需要回收；驱动不在共享浏览器中或无需回收时返回 null
+     */
+    @Nullable
+    public static String checkSharedBrowser(WebDriver driver,
+                                            long rssMb) {
+
+        var context = driver == null ? null : DRIVER_CONTEXTS.get(driver);
+        if (context == null) {
+            return null;
+        }
+
+        var browser = context.browser();
+        if (browser.getRetireReason() == null && rssMb > 0) {
+            var stats = ACTIVE_DRIVERS.get(driver);
+            var rss = stats != null ? stats.getRssMb() : -1;
+            if (rss > rssMb) {
+                synchronized (SHARED_LOCK) {
+                    if (browser.getRetireReason() == null) {
+                        browser.retire("共享浏览器内存占用 " + rss + "MB 超过 " + rssMb + "MB");
+                        LOGGER.info("共享浏览器内存占用 {}MB 超过 {}MB，重启共享浏览器，各驱动将依次迁移", rss, rssMb);
+                    }
+                }
+            }
+        }
+        return browser.getRetireReason();
+    }
+
+    /**
+     * 检查驱动是否运行在共享浏览器的上下文中
+     *
+     * @param driver WebDriver 实例
+     * @return 是否运行在共享浏览器中
+     */
+    public static boolean isSharedContext(WebDriver driver) {
+        return driver != null && DRIVER_CONTEXTS.containsKey(driver);
+    }
+
+    /**
+     * 获取驱动的运行统计
+     *
+     * @param driver WebDriver 实例
+     * @return 运行统计，驱动未被追踪时返回 null
+     */
+    @Nullable
+    public static DriverStats getStats(WebDriver driver) {
+        return driver == null ? null : ACTIVE_DRIVERS.get(driver);
+    }
+
+    /**
+     * 获取所有浏览器进程树的常驻内存总和
+     * <p>
+     * 共享浏览器中的多个驱动只统计一次
+     *
+     * @return 常驻内存（MB），无法获取时返回 -1
+     */
+    public static long getTotalRssMb() {
+        var total = ACTIVE_DRIVERS.values()
+                .stream()
+                .collect(Collectors.toMap(DriverStats::getInstanceId, s -> s, (a, _) -> a))
+                .values()
+                .stream()
+                .mapToLong(DriverStats::getRssMb)
+                .filter(rss -> rss > 0)
+                .sum();
+
+        return total > 0 ? total : -1;
+    }
+
+    /**
+     * 通过 CDP 屏蔽匹配指定 URL 模式的请求
+     * <p>
+     * 规则对当前页面后续的所有导航生效，支持 * 通配符
+     *
+     * @param driver   WebDriver 实例
+     * @param patterns URL 模式列表，为空时取消屏蔽
+     */
+    public static void blockRequests(WebDriver driver,
+                                     List<String> patterns) {
+
+        if (!(driver instanceof HasCdp cdp)) {
+            return;
+        }
+
+        try {
+            cdp.executeCdpCommand("Network.enable", Map.of());
+            cdp.executeCdpCommand("Network.setBlockedURLs", Map.of("urls", patterns));
+            if (!patterns.isEmpty()) {
+                LOGGER.info("已屏蔽 {} 条请求规则", patterns.size());
+            }
+        } catch (Exception e) {
+            LOGGER.warn("设置请求屏蔽规则失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 导航到指定页面
+     * <p>
+     * 按页面加载策略返回，超出时间预算时停止加载并继续，由调用方等待所需元素；
+     * 记录页面加载耗时与渲染进程 JS 堆占用，用于比较请求屏蔽等优化的效果
+     *
+     * @param driver WebDriver 实例
+     * @param url    页面 URL
+     * @return 页面加载耗时（毫秒）
+     */
+    public static long navigate(WebDriver driver,
+                                String url) {
+
+        var js = (JavascriptExecutor) driver;
+        var waitNewDocument = pageLoadStrategy == PageLoadStrategy.NONE;
+
+        var start = System.nanoTime();
+        if (waitNewDocument) {
+            js.executeScript(SCRIPT_MARK_STALE);
+        }
+
+        try {
+            driver.get(url);
+            if (waitNewDocument) {
+                // 导航开始即返回，此时可能仍是旧文档
+                new WebDriverWait(driver, pageLoadTimeout, Duration.ofMillis(50))
+                        .ignoring(JavascriptException.class)
+                        .until(_ -> Boolean.TRUE.equals(js.executeScript(SCRIPT_IS_NEW_DOCUMENT)));
             }
+        } catch (TimeoutException e) {
+            LOGGER.warn("页面加载超过 {}s，已停止加载: {}", pageLoadTimeout.toSeconds(), url);
+            js.executeScript("window.stop();");
+        }
+        var elapsed = (System.nanoTime() - start) / 1_000_000;
 
+        var stats = getStats(driver);
+        if (stats != null) {
+            stats.recordNavigation();
+        }
+
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("页面加载耗时 {}ms, JS 堆 {}MB: {}", elapsed, getJsHeapMb(driver), url);
+        }
+        return elapsed;
+    }
+
+    /**
+     * 获取当前页面的 JS 堆占用
+     *
+     * @param driver WebDriver 实例
+     * @return JS 堆占用（MB），无法获取时返回 -1
+     */
+    @SuppressWarnings("unchecked")
+    static long getJsHeapMb(WebDriver driver) {
+
+        if (!(driver instanceof HasCdp cdp)) {
+            return -1;
+        }
+
+        try {
+            cdp.executeCdpCommand("Performance.enable", Map.of());
+            var metrics = (List<Map<String, Object>>) cdp
+                    .executeCdpCommand("Performance.getMetrics", Map.of())
+                    .get("metrics");
+
+            return metrics.stream()
+                    .filter(m -> "JSHeapUsedSize".equals(m.get("name")))
+                    .map(m -> ((Number) m.get("value")).longValue() / (1024 * 1024))
+                    .findFirst()
+                    .orElse(-1L);
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
+    /**
+     * 彻底销毁所有已创建且未关闭的驱动进程
+     */
+    public static void cleanupAllDrivers() {
+        var it = ACTIVE_DRIVERS.keySet().iterator();
+        while (it.hasNext()) {
+            WebDriver driver = it.next();
+            try {
+                driver.quit();
+            } catch (Exception _) {
+            }
+            ChromeProfile.release(DRIVER_PROFILES.remove(driver));
+            it.remove();
+        }
+        DRIVER_CONTEXTS.clear();
+
+        synchronized (SHARED_LOCK) {
+            RETIRED_BROWSERS.forEach(SharedBrowser::close);
+            RETIRED_BROWSERS.clear();
+            if (sharedBrowser != null) {
+                sharedBrowser.close();
+                sharedBrowser = null;
+            }
         }
     }
 
@@ -90,83 +535,146 @@ public class ChromeUtil {
     public static void quitDriver(WebDriver driver) {
         if (driver != null) {
             ACTIVE_DRIVERS.remove(driver);
+
+            // 共享浏览器模式下先销毁驱动的浏览器上下文
+            var context = DRIVER_CONTEXTS.remove(driver);
+            if (context != null && context.browser().isAlive()) {
+                context.browser().disposeContext(context.contextId());
+            }
+
             try {
                 driver.quit();
             } catch (Exception _) {
             }
+
+            // 已停用的共享浏览器在最后一个上下文销毁后关闭
+            if (context != null) {
+                closeIfDrained(context.browser());
+            }
+
+            // 浏览器退出后释放用户数据目录槽位
+            ChromeProfile.release(DRIVER_PROFILES.remove(driver));
         }
     }
 
     /**
-     * 保存 Cookies 到文件
+     * 关闭已停用且没有上下文在使用的共享浏览器
      *
-     * @param driver      WebDriver 实例
-     * @param homepageUrl 主页 URL
+     * @param browser 共享浏览器
      */
-    public static void saveCookies(WebDriver driver,
-                                   String homepageUrl) {
-
-        try (FileWriter fileWriter = new FileWriter(COOKIE_FILE);
-             BufferedWriter bufferedWriter = new BufferedWriter(fileWriter)) {
+    private static void closeIfDrained(SharedBrowser browser) {
+        synchronized (SHARED_LOCK) {
+            if (browser.getRetireReason() == null || hasContexts(browser)) {
+                return;
+            }
 
-            driver.get(homepageUrl);
-            Thread.sleep(500);
+            browser.close();
+            RETIRED_BROWSERS.remove(browser);
+            if (sharedBrowser == browser) {
+                sharedBrowser = null;
+            }
+        }
+    }
 
-            Set<Cookie> cookies = driver.manage().getCookies();
+    /**
+     * 检查浏览器是否持有指定页面的登录状态 Cookie
+     * <p>
+     * 无需先打开该页面
+     *
+     * @param session 浏览器会话
+     * @param url     页面 URL
+     * @return 是否持有登录状态 Cookie
+     */
+    public static boolean hasLoginCookie(BrowserSession session,
+                                         String url) {
+        try {
+            return session.getCookies(url)
+                    .stream()
+                    .anyMatch(c -> LOGIN_COOKIE.equals(c.getName()));
+        } catch (Exception e) {
+            return false;
+        }
+    }
 
-            for (org.openqa.selenium.Cookie c : cookies) {
-                bufferedWriter.write(
-                        c.getName() + ";" +
-                        c.getValue() + ";" +
-                        c.getDomain() + ";" +
-                        c.getPath() + ";" +
-                        c.getExpiry() + ";" +
-                        c.isSecure()
-                );
-                bufferedWriter.newLine();
+    /**
+     * 检查浏览器持有的登录状态 Cookie 是否与已保存的 Cookies 一致
+     * <p>
+     * 无需先打开该页面。用户数据目录中可能保留着已失效的登录状态，
+     * 重新登录后保存的 Cookies 与之不同，此时需要重放已保存的 Cookies
+     *
+     * @param session 浏览器会话
+     * @param url     页面 URL
+     * @return 是否持有登录状态 Cookie，且已保存的 Cookies 中没有不同的登录状态
+     */
+    public static boolean hasCurrentLoginCookie(BrowserSession session,
+                                                String url) {
+        try {
+            var current = session.getCookies(url)
+                    .stream()
+                    .filter(c -> LOGIN_COOKIE.equals(c.getName()))
+                    .map(Cookie::getValue)
+                    .findFirst();
+            if (current.isEmpty()) {
+                return false;
+            }
+            if (!CookieStore.exists()) {
+                return true;
             }
-            LOGGER.info("Cookies 保存成功");
 
-        } catch (InterruptedException | IOException e) {
-            LOGGER.error("保存 cookies 时出错", e);
+            return CookieStore.load()
+                    .stream()
+                    .filter(c -> LOGIN_COOKIE.equals(c.getName()))
+                    .map(Cookie::getValue)
+                    .findFirst()
+                    .map(current.get()::equals)
+                    .orElse(true);
+        } catch (Exception e) {
+            return false;
         }
     }
 
     /**
-     * 从文件加载 Cookies 到浏览器
+     * 保存 Cookies 到文件
      *
-     * @param driver WebDriver 实例
+     * @param session     浏览器会话
+     * @param homepageUrl 主页 URL
      */
-    public static void loadCookies(WebDriver driver,
+    public static void saveCookies(BrowserSession session,
                                    String homepageUrl) {
 
-        if (Files.notExists(Path.of(COOKIE_FILE))) {
-            LOGGER.warn("Cookies 文件不存在，请登录");
-
-            Login.loginHeadless(driver, homepageUrl);
+        try {
+            CookieStore.save(session.getCookies(homepageUrl));
+            LOGGER.info("Cookies 保存成功");
 
-            return;
+        } catch (IOException e) {
+            LOGGER.error("保存 cookies 时出错", e);
         }
+    }
 
-        try (FileReader fileReader = new FileReader(COOKIE_FILE);
-             BufferedReader bufferedReader = new BufferedReader(fileReader)) {
-
-            String line;
-            while ((line = bufferedReader.readLine()) != null) {
-                String[] token = line.split(";");
+    /**
+     * 从文件加载 Cookies 到浏览器
+     * <p>
+     * 一次性写入所有未过期的 Cookies，无需先打开主页
+     *
+     * @param session 浏览器会话
+     * @return Cookies 文件是否存在，不存在时需要登录
+     */
+    public static boolean loadCookies(BrowserSession session) {
 
-                var cookieBuilder = new org.openqa.selenium.Cookie.Builder(token[0], token[1])
-                        .domain(token[2])
-                        .path(token[3])
-                        .isSecure(Boolean.parseBoolean(token[5]));
+        if (!CookieStore.exists()) {
+            LOGGER.warn("Cookies 文件不存在，请登录");
+            return false;
+        }
 
-                driver.manage().addCookie(cookieBuilder.build());
-            }
-            LOGGER.info("Cookies 加载成功");
+        try {
+            var cookies = CookieStore.load();
+            session.setCookies(cookies);
+            LOGGER.info("Cookies 加载成功，共 {} 个", cookies.size());
 
-        } catch (IOException | ArrayIndexOutOfBoundsException e) {
+        } catch (IOException | RuntimeException e) {
             LOGGER.error("加载 cookies 时出错", e);
         }
+        return true;
     }
 
 }
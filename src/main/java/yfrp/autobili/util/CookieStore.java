@@ -0,0 +1,175 @@
+package yfrp.autobili.util;
+
+import org.openqa.selenium.Cookie;
+import org.openqa.selenium.json.Json;
+import org.openqa.selenium.json.JsonException;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Cookies 存储
+ * <p>
+ * 以带版本号的 JSON 格式保存 Cookies，保留过期时间、SameSite 与 HttpOnly 属性，
+ * 并兼容读取旧版以分号分隔的 cookies.txt
+ */
+class CookieStore {
+
+    // 存储格式版本
+    private static final int VERSION = 1;
+
+    // Cookies 文件
+    private static final Path FILE = Path.of("cookies.json");
+    // 旧版 Cookies 文件
+    private static final Path LEGACY_FILE = Path.of("cookies.txt");
+
+    private static final Json JSON = new Json();
+
+    /**
+     * 检查是否存在已保存的 Cookies
+     *
+     * @return 是否存在
+     */
+    static boolean exists() {
+        return Files.exists(FILE) || Files.exists(LEGACY_FILE);
+    }
+
+    /**
+     * 保存 Cookies
+     * <p>
+     * 先写入临时文件再替换，避免写入中断导致文件损坏
+     *
+     * @param cookies Cookies
+     * @throws IOException IO 异常
+     */
+    static void save(Collection<Cookie> cookies)
+            throws IOException {
+
+        var list = new ArrayList<Map<String, Object>>();
+        for (var c : cookies) {
+            var map = new LinkedHashMap<String, Object>();
+            map.put("name", c.getName());
+            map.put("value", c.getValue());
+            map.put("domain", c.getDomain());
+            map.put("path", c.getPath());
+            if (c.getExpiry() != null) {
+                map.put("expiry", c.getExpiry().getTime() / 1000);
+            }
+            map.put("secure", c.isSecure());
+            map.put("httpOnly", c.isHttpOnly());
+            if (c.getSameSite() != null) {
+                map.put("sameSite", c.getSameSite());
+            }
+            list.add(map);
+        }
+
+        var tmp = FILE.resolveSibling(FILE.getFileName() + ".tmp");
+        Files.writeString(tmp, JSON.toJson(Map.of("version", VERSION, "cookies", list)), StandardCharsets.UTF_8);
+        Files.move(tmp, FILE, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * 加载未过期的 Cookies
+     * <p>
+     * 仅存在旧版文件时从旧版文件读取
+     *
+     * @return Cookies
+     * @throws IOException IO 异常
+     */
+    static List<Cookie> load()
+            throws IOException {
+
+        var cookies = Files.exists(FILE) ? loadJson() : loadLegacy();
+        var now = new Date();
+
+        return cookies.stream()
+                .filter(c -> c.getExpiry() == null || c.getExpiry().after(now))
+                .toList();
+    }
+
+    /**
+     * 从 JSON 文件加载 Cookies
+     *
+     * @return Cookies
+     * @throws IOException IO 异常
+     */
+    @SuppressWarnings("unchecked")
+    private static List<Cookie> loadJson()
+            throws IOException {
+
+        try {
+            Map<String, Object> root = JSON.toType(Files.readString(FILE, StandardCharsets.UTF_8), Json.MAP_TYPE);
+            if (!(root.get("version") instanceof Number version) || version.intValue() > VERSION) {
+                throw new IOException("不支持的 Cookies 文件版本: " + root.get("version"));
+            }
+
+            var cookies = new ArrayList<Cookie>();
+            for (var map : (List<Map<String, Object>>) root.getOrDefault("cookies", List.of())) {
+                var builder = new Cookie.Builder((String) map.get("name"), (String) map.get("value"))
+                        .domain((String) map.get("domain"))
+                        .path((String) map.getOrDefault("path", "/"))
+                        .isSecure(Boolean.TRUE.equals(map.get("secure")))
+                        .isHttpOnly(Boolean.TRUE.equals(map.get("httpOnly")))
+                        .sameSite((String) map.get("sameSite"));
+                if (map.get("expiry") instanceof Number expiry) {
+                    builder.expiresOn(new Date(expiry.longValue() * 1000));
+                }
+                cookies.add(builder.build());
+            }
+            return cookies;
+
+        } catch (JsonException | ClassCastException e) {
+            throw new IOException("Cookies 文件格式错误", e);
+        }
+    }
+
+    /**
+     * 从旧版 cookies.txt 加载 Cookies
+     * <p>
+     * 旧版格式为 名称;值;域名;路径;过期时间;是否安全，值中可能含有分号
+     *
+     * @return Cookies
+     * @throws IOException IO 异常
+     */
+    private static List<Cookie> loadLegacy()
+            throws IOException {
+
+        var dateFormat = new SimpleDateFormat("EEE MMM dd HH:mm:ss zzz yyyy", Locale.US);
+        var cookies = new ArrayList<Cookie>();
+
+        for (var line : Files.readAllLines(LEGACY_FILE)) {
+            var token = line.split(";", -1);
+            if (token.length < 6) {
+                continue;
+            }
+
+            var n = token.length;
+            var value = String.join(";", List.of(token).subList(1, n - 4));
+            var builder = new Cookie.Builder(token[0], value)
+                    .domain(token[n - 4])
+                    .path(token[n - 3])
+                    .isSecure(Boolean.parseBoolean(token[n - 1]));
+            try {
+                builder.expiresOn(dateFormat.parse(token[n - 2]));
+            } catch (ParseException _) {
+                // 会话 Cookie 的过期时间为 null
+            }
+            cookies.add(builder.build());
+        }
+
+        return cookies;
+    }
+
+}
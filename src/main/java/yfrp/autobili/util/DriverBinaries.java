@@ -0,0 +1,150 @@
+package yfrp.autobili.util;
+
+import io.github.bonigarcia.wdm.WebDriverManager;
+import org.jetbrains.annotations.Nullable;
+import org.openqa.selenium.json.Json;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 浏览器与驱动程序路径
+ * <p>
+ * 将解析到的 chromedriver 与 Chrome 路径缓存到本地文件，
+ * 重启时直接使用缓存，离线环境下也不会因联网解析而阻塞
+ */
+class DriverBinaries {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DriverBinaries.class);
+
+    // 路径缓存文件
+    private static final Path CACHE_FILE = Path.of("driver-paths.json");
+
+    private static final Json JSON = new Json();
+
+    // Chrome 浏览器路径
+    private static volatile Path browserPath;
+    // 当前路径是否来自缓存
+    private static volatile boolean fromCache = false;
+
+    /**
+     * 解析浏览器与驱动程序路径
+     * <p>
+     * 缓存中的路径均存在时直接使用，否则通过 WebDriverManager 解析并写入缓存；
+     * 解析失败时交由 Selenium Manager 在启动浏览器时处理
+     */
+    static synchronized void resolve() {
+
+        if (loadCache()) {
+            fromCache = true;
+            LOGGER.info("已使用缓存的浏览器驱动: {}", System.getProperty("webdriver.chrome.driver"));
+            return;
+        }
+
+        try {
+            var manager = WebDriverManager.chromedriver().avoidShutdownHook();
+            manager.setup();
+
+            var driverPath = Path.of(manager.getDownloadedDriverPath());
+            browserPath = manager.getBrowserPath().orElse(null);
+            fromCache = false;
+            saveCache(driverPath, browserPath);
+
+            LOGGER.info("已解析浏览器驱动: {}", driverPath);
+        } catch (Exception e) {
+            LOGGER.warn("解析浏览器驱动失败，将在启动浏览器时自动查找: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 缓存的路径失效时（例如浏览器已自动更新）重新解析
+     *
+     * @return 是否重新解析了路径
+     */
+    static synchronized boolean invalidate() {
+        if (!fromCache) {
+            return false;
+        }
+
+        LOGGER.info("缓存的浏览器驱动可能已失效，正在重新解析");
+        try {
+            Files.deleteIfExists(CACHE_FILE);
+        } catch (IOException _) {
+        }
+        System.clearProperty("webdriver.chrome.driver");
+        browserPath = null;
+        fromCache = false;
+
+        resolve();
+        return true;
+    }
+
+    /**
+     * 获取 Chrome 浏览器路径
+     *
+     * @return 浏览器路径，未解析时返回 null
+     */
+    @Nullable
+    static Path getBrowserPath() {
+        return browserPath;
+    }
+
+    /**
+     * 从缓存文件加载路径
+     *
+     * @return 是否加载成功
+     */
+    private static boolean loadCache() {
+
+        if (Files.notExists(CACHE_FILE)) {
+            return false;
+        }
+
+        try {
+            Map<String, Object> cache = JSON.toType(Files.readString(CACHE_FILE, StandardCharsets.UTF_8), Json.MAP_TYPE);
+            var driver = cache.get("chromedriver") instanceof String s ? Path.of(s) : null;
+            var browser = cache.get("chrome") instanceof String s ? Path.of(s) : null;
+
+            if (driver == null || !Files.isExecutable(driver) ||
+                (browser != null && !Files.isExecutable(browser))) {
+                return false;
+            }
+
+            System.setProperty("webdriver.chrome.driver", driver.toString());
+            browserPath = browser;
+            return true;
+
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * 写入缓存文件
+     *
+     * @param driver  chromedriver 路径
+     * @param browser Chrome 路径，可为 null
+     */
+    private static void saveCache(Path driver,
+                                  @Nullable Path browser) {
+
+        var cache = new LinkedHashMap<String, Object>();
+        cache.put("chromedriver", driver.toAbsolutePath().toString());
+        if (browser != null) {
+            cache.put("chrome", browser.toAbsolutePath().toString());
+        }
+
+        try {
+            Files.writeString(CACHE_FILE, JSON.toJson(cache), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            LOGGER.warn("写入浏览器驱动路径缓存失败: {}", e.getMessage());
+        }
+    }
+
+}
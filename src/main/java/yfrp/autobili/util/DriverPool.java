@@ -0,0 +1,226 @@
+package yfrp.autobili.util;
+
+import org.openqa.selenium.WebDriver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * 浏览器驱动池
+ * <p>
+ * 为工作线程租借浏览器驱动，并在后台预热一个备用驱动，
+ * 使故障驱动可以被立即替换，而无需等待冷启动
+ */
+public class DriverPool implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DriverPool.class);
+
+    // 关闭时等待仍在启动中的备用驱动的最长时间
+    private static final Duration CLOSE_TIMEOUT = Duration.ofSeconds(10);
+
+    // 驱动池名称，用于日志
+    private final String name;
+    // 驱动工厂，负责启动并预热驱动
+    private final Supplier<WebDriver> factory;
+    // 是否预热备用驱动
+    private final boolean warmStandby;
+    // 后台预热线程
+    private final ExecutorService warmer;
+
+    // 正在预热或已就绪的备用驱动
+    private volatile CompletableFuture<WebDriver> standby;
+    // 驱动池是否已关闭
+    private volatile boolean closed = false;
+
+    /**
+     * 构造函数
+     *
+     * @param name        驱动池名称
+     * @param threadName  后台预热线程名称
+     * @param factory     驱动工厂
+     * @param warmStandby 是否预热备用驱动
+     */
+    public DriverPool(String name,
+                      String threadName,
+                      Supplier<WebDriver> factory,
+                      boolean warmStandby) {
+
+        this.name = name;
+        this.factory = factory;
+        this.warmStandby = warmStandby;
+        this.warmer = Executors.newSingleThreadExecutor(r -> {
+            var thread = new Thread(r, threadName);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 租借一个可用的驱动
+     * <p>
+     * 优先使用备用驱动，备用驱动不可用时同步启动新驱动，随后在后台预热下一个备用驱动
+     *
+     * @return 驱动实例
+     */
+    public synchronized WebDriver lease() {
+
+        if (closed) {
+            throw new IllegalStateException(name + "驱动池已关闭");
+        }
+
+        var driver = takeStandby();
+        if (driver == null) {
+            driver = factory.get();
+        }
+
+        refillStandby();
+        return driver;
+    }
+
+    /**
+     * 替换故障驱动
+     * <p>
+     * 故障驱动在后台关闭，立即返回一个可用的驱动
+     *
+     * @param failed 故障驱动，可为 null
+     * @return 新的驱动实例
+     */
+    public synchronized WebDriver replace(WebDriver failed) {
+        release(failed);
+        return lease();
+    }
+
+    /**
+     * 归还并关闭驱动
+     *
+     * @param driver 驱动实例，可为 null
+     */
+    public void release(WebDriver driver) {
+        if (driver == null) {
+            return;
+        }
+
+        if (closed) {
+            ChromeUtil.quitDriver(driver);
+            return;
+        }
+
+        try {
+            warmer.execute(() -> ChromeUtil.quitDriver(driver));
+        } catch (RejectedExecutionException e) {
+            // 驱动池在此期间关闭
+            ChromeUtil.quitDriver(driver);
+        }
+    }
+
+    /**
+     * 检查驱动是否可用
+     *
+     * @param driver 驱动实例
+     * @return 驱动是否可用
+     */
+    public static boolean isHealthy(WebDriver driver) {
+        if (driver == null) {
+            return false;
+        }
+
+        try {
+            driver.getWindowHandle();
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * 取出备用驱动
+     * <p>
+     * 备用驱动仍在预热时等待其完成，这通常比重新冷启动更快
+     *
+     * @return 可用的备用驱动，没有时返回 null
+     */
+    private WebDriver takeStandby() {
+
+        if (standby == null) {
+            return null;
+        }
+
+        var future = standby;
+        standby = null;
+
+        try {
+            var driver = future.get();
+            if (isHealthy(driver)) {
+                LOGGER.info("已切换到预热的{}", name);
+                return driver;
+            }
+            ChromeUtil.quitDriver(driver);
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            LOGGER.warn("预热{}失败: {}", name, e.getCause().getMessage());
+        }
+
+        return null;
+    }
+
+    /**
+     * 在后台预热下一个备用驱动
+     */
+    private void refillStandby() {
+        if (!warmStandby || closed || standby != null) {
+            return;
+        }
+
+        standby = CompletableFuture.supplyAsync(() -> {
+            var driver = factory.get();
+            LOGGER.info("备用{}已就绪", name);
+            return driver;
+        }, warmer);
+    }
+
+    /**
+     * 关闭驱动池，并关闭备用驱动
+     * <p>
+     * 不中断仍在启动中的备用驱动：启动中途被中断的浏览器进程可能尚未登记，无法被兜底关闭。
+     * 最多等待其启动 CLOSE_TIMEOUT，超时后在其启动完成时关闭。
+     * 与 {@link #lease()} 互斥，租借过程中不会关闭
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        // 已提交的关闭任务继续执行，不再接受新任务
+        warmer.shutdown();
+
+        var future = standby;
+        standby = null;
+        if (future != null) {
+            try {
+                ChromeUtil.quitDriver(future.get(CLOSE_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS));
+            } catch (TimeoutException e) {
+                LOGGER.warn("备用{}仍在启动，将在启动完成后关闭", name);
+                future.thenAccept(ChromeUtil::quitDriver);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                future.thenAccept(ChromeUtil::quitDriver);
+            } catch (ExecutionException _) {
+                // 启动失败，没有需要关闭的驱动
+            }
+        }
+    }
+
+}
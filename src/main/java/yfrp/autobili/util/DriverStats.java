@@ -0,0 +1,154 @@
+package yfrp.autobili.util;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * 浏览器驱动运行统计
+ * <p>
+ * 记录驱动的启动时间、导航次数，并定位其浏览器进程以读取内存占用
+ */
+public class DriverStats {
+
+    // 浏览器实例标记参数前缀，用于在进程列表中定位浏览器主进程
+    static final String INSTANCE_SWITCH = "--autobili-instance=";
+
+    // 浏览器实例编号
+    private final int instanceId;
+    // 启动时间（纳秒）
+    private final long launchedAt = System.nanoTime();
+    // 导航次数
+    private final AtomicInteger navigations = new AtomicInteger(0);
+
+    // 浏览器主进程，首次读取内存占用时查找
+    private volatile ProcessHandle browserProcess;
+
+    /**
+     * 构造函数
+     *
+     * @param instanceId 浏览器实例编号
+     */
+    DriverStats(int instanceId) {
+        this.instanceId = instanceId;
+    }
+
+    /**
+     * 获取浏览器实例编号
+     *
+     * @return 浏览器实例编号
+     */
+    public int getInstanceId() {
+        return instanceId;
+    }
+
+    /**
+     * 记录一次导航
+     */
+    void recordNavigation() {
+        navigations.incrementAndGet();
+    }
+
+    /**
+     * 获取导航次数
+     *
+     * @return 导航次数
+     */
+    public int getNavigations() {
+        return navigations.get();
+    }
+
+    /**
+     * 获取运行时长
+     *
+     * @return 运行时长
+     */
+    public Duration getUptime() {
+        return Duration.ofNanos(System.nanoTime() - launchedAt);
+    }
+
+    /**
+     * 获取浏览器进程树的常驻内存
+     * <p>
+     * 统计浏览器主进程及其所有子进程（渲染、GPU 等）的 VmRSS，仅支持 Linux
+     *
+     * @return 常驻内存（MB），无法获取时返回 -1
+     */
+    public long getRssMb() {
+
+        var browser = findBrowserProcess();
+        if (browser.isEmpty()) {
+            return -1;
+        }
+
+        var kb = Stream.concat(Stream.of(browser.get()), browser.get().descendants())
+                .mapToLong(DriverStats::readRssKb)
+                .filter(rss -> rss > 0)
+                .sum();
+
+        return kb > 0 ? kb / 1024 : -1;
+    }
+
+    /**
+     * 查找浏览器主进程
+     *
+     * @return 浏览器主进程
+     */
+    private Optional<ProcessHandle> findBrowserProcess() {
+
+        var cached = browserProcess;
+        if (cached != null && cached.isAlive()) {
+            return Optional.of(cached);
+        }
+
+        var marker = INSTANCE_SWITCH + instanceId;
+        var found = ProcessHandle.current()
+                .descendants()
+                .filter(p -> hasMarker(p, marker))
+                .filter(p -> p.parent().map(parent -> !hasMarker(parent, marker)).orElse(true))
+                .findFirst();
+
+        found.ifPresent(p -> browserProcess = p);
+        return found;
+    }
+
+    /**
+     * 检查进程命令行是否包含实例标记
+     *
+     * @param process 进程
+     * @param marker  实例标记
+     * @return 是否包含
+     */
+    private static boolean hasMarker(ProcessHandle process,
+                                     String marker) {
+
+        return process.info()
+                .commandLine()
+                .map(cmd -> cmd.contains(marker + " ") || cmd.endsWith(marker))
+                .orElse(false);
+    }
+
+    /**
+     * 读取进程的常驻内存
+     *
+     * @param process 进程
+     * @return 常驻内存（KB），无法读取时返回 -1
+     */
+    private static long readRssKb(ProcessHandle process) {
+
+        try (var lines = Files.lines(Path.of("/proc", String.valueOf(process.pid()), "status"))) {
+            return lines.filter(line -> line.startsWith("VmRSS:"))
+                    .map(line -> line.replaceAll("\\D", ""))
+                    .mapToLong(Long::parseLong)
+                    .findFirst()
+                    .orElse(-1);
+        } catch (IOException | RuntimeException e) {
+            return -1;
+        }
+    }
+
+}
@@ -0,0 +1,88 @@
+package yfrp.autobili.util;
+
+import org.jetbrains.annotations.Nullable;
+import org.openqa.selenium.WebDriver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+
+/**
+ * 浏览器资源监视器
+ * <p>
+ * 在任务间隙检查浏览器的 JS 堆、进程内存、运行时长与导航次数，
+ * 超过阈值时提示回收浏览器，避免长期运行的浏览器在任务中途崩溃。
+ * 共享浏览器中的驱动不单独检查进程内存，而是检查整个共享浏览器，超过阈值时重启共享浏览器
+ */
+public class DriverWatchdog {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DriverWatchdog.class);
+
+    /**
+     * 回收阈值
+     * <p>
+     * 各项阈值为 0 时表示不检查该项
+     *
+     * @param jsHeapMb    JS 堆占用上限（MB）
+     * @param rssMb       浏览器进程树常驻内存上限（MB）
+     * @param uptime      运行时长上限
+     * @param navigations 导航次数上限
+     */
+    public record Thresholds(long jsHeapMb,
+                             long rssMb,
+                             Duration uptime,
+                             int navigations) {
+    }
+
+    /**
+     * 检查浏览器是否需要回收
+     *
+     * @param driver     WebDriver 实例
+     * @param thresholds 回收阈值
+     * @return 需要回收的原因，不需要回收时返回 null
+     */
+    @Nullable
+    public static String checkRecycle(WebDriver driver,
+                                      Thresholds thresholds) {
+
+        var stats = ChromeUtil.getStats(driver);
+        if (stats == null) {
+            return null;
+        }
+
+        // 共享浏览器的内存由所有上下文共同占用，回收单个上下文无法使其下降
+        var sharedReason = ChromeUtil.checkSharedBrowser(driver, thresholds.rssMb());
+        if (sharedReason != null) {
+            return sharedReason;
+        }
+        var shared = ChromeUtil.isSharedContext(driver);
+
+        var uptime = stats.getUptime();
+        var navigations = stats.getNavigations();
+        var jsHeapMb = thresholds.jsHeapMb() > 0 ? ChromeUtil.getJsHeapMb(driver) : -1;
+        var rssMb = thresholds.rssMb() > 0 && !shared ? stats.getRssMb() : -1;
+
+        LOGGER.debug("浏览器资源占用 | JS 堆: {}MB, 内存: {}MB, 运行: {}min, 导航: {} 次",
+                jsHeapMb,
+                rssMb,
+                uptime.toMinutes(),
+                navigations
+        );
+
+        if (thresholds.jsHeapMb() > 0 && jsHeapMb > thresholds.jsHeapMb()) {
+            return "JS 堆占用 " + jsHeapMb + "MB 超过 " + thresholds.jsHeapMb() + "MB";
+        }
+        if (!shared && thresholds.rssMb() > 0 && rssMb > thresholds.rssMb()) {
+            return "内存占用 " + rssMb + "MB 超过 " + thresholds.rssMb() + "MB";
+        }
+        if (!thresholds.uptime().isZero() && uptime.compareTo(thresholds.uptime()) > 0) {
+            return "运行时长超过 " + thresholds.uptime().toHours() + "h";
+        }
+        if (thresholds.navigations() > 0 && navigations >= thresholds.navigations()) {
+            return "导航次数达到 " + navigations + " 次";
+        }
+
+        return null;
+    }
+
+}
@@ -2,78 +2,103 @@ package yfrp.autobili.util;
 
 import com.google.zxing.FormatException;
 import com.google.zxing.NotFoundException;
-import org.openqa.selenium.By;
-import org.openqa.selenium.TimeoutException;
-import org.openqa.selenium.WebDriver;
-import org.openqa.selenium.WebElement;
-import org.openqa.selenium.support.ui.ExpectedConditions;
-import org.openqa.selenium.support.ui.WebDriverWait;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import yfrp.autobili.browser.BrowserSession;
 
 import java.io.IOException;
 import java.time.Duration;
+import java.util.function.Consumer;
 
 /**
  * Bilibili 登录工具类
  * <p>
- * 提供手动登录功能，用于设置浏览器配置和用户登录状态
+ * 提供扫码登录功能，用于设置浏览器配置和用户登录状态
  */
 public class Login {
     private static final Logger LOGGER = LoggerFactory.getLogger(Login.class);
 
+    // 登录按钮选择器
+    private static final String LOGIN_BUTTON = ".header-login-entry";
+    // 登录二维码选择器
+    private static final String QR_CODE = ".login-scan-box img";
+    // 获取二维码失败后重试前的等待时间
+    private static final Duration RETRY_DELAY = Duration.ofSeconds(5);
+
     /**
      * 在无头模式下登录并保存 cookies
+     * <p>
+     * 直到登录成功或线程被中断才返回，浏览器已登录时直接保存 Cookies 并返回
      *
-     * @param driver      WebDriver 实例
+     * @param session     浏览器会话
      * @param homepageUrl 主页 URL
+     * @param onState     登录状态变化时调用
      */
-    public static void loginHeadless(WebDriver driver,
-                                     String homepageUrl) {
+    public static void loginHeadless(BrowserSession session,
+                                     String homepageUrl,
+                                     Consumer<LoginSession.State> onState) {
 
         LOGGER.info("正在获取登录二维码");
         while (true) {
             try {
-
-                driver.get(homepageUrl);
-                WebDriverWait wait1 = new WebDriverWait(driver, Duration.ofSeconds(5));
-                By loginBtnLocator = By.cssSelector(".header-login-entry");
-                By qrCodeLocator = By.cssSelector(".login-scan-box img");
-
-                // 点击登录按钮
-                WebElement loginBtn = wait1.until(ExpectedConditions.elementToBeClickable(loginBtnLocator));
-                loginBtn.click();
+                onState.accept(LoginSession.State.REFRESHING);
+
+                session.navigate(homepageUrl);
+
+                // 点击登录按钮，没有登录按钮且持有登录状态 Cookie 时说明已登录
+                if (!session.waitFor(LOGIN_BUTTON, Duration.ofSeconds(5))) {
+                    if (ChromeUtil.hasLoginCookie(session, homepageUrl)) {
+                        LOGGER.info("浏览器已登录，无需扫码");
+                        break;
+                    }
+                    LOGGER.warn("未找到登录按钮，{}s 后重试", RETRY_DELAY.toSeconds());
+                    Thread.sleep(RETRY_DELAY);
+                    continue;
+                }
+                session.executeScript("document.querySelector(arguments[0]).click();", LOGIN_BUTTON);
 
                 // 提取二维码图片 Base64
-                WebElement qrCodeImg = wait1.until(ExpectedConditions.visibilityOfElementLocated(qrCodeLocator));
+                session.waitUntil(
+                        "const img = document.querySelector(arguments[0]); return img !== null && img.offsetParent !== null;",
+                        Duration.ofSeconds(5),
+                        QR_CODE
+                );
                 Thread.sleep(500);
-                var qrBase64 = qrCodeImg.getAttribute("src");
+                var qrBase64 = (String) session.executeScript(
+                        "const img = document.querySelector(arguments[0]); return img ? img.src : null;",
+                        QR_CODE
+                );
                 if (qrBase64 == null || !qrBase64.startsWith("data:image")) {
-                    LOGGER.warn("未获取到有效的登录二维码，正在重试");
+                    LOGGER.warn("未获取到有效的登录二维码，{}s 后重试", RETRY_DELAY.toSeconds());
+                    Thread.sleep(RETRY_DELAY);
                     continue;
                 }
 
                 printLoginQrCode(qrBase64);
+                onState.accept(LoginSession.State.AWAITING_SCAN);
 
                 // 检测登录成功
-                WebDriverWait wait2 = new WebDriverWait(driver, Duration.ofSeconds(120));
-
-                var isLoginBtnHidden = wait2.until(ExpectedConditions.invisibilityOfElementLocated(loginBtnLocator));
+                var isLoginBtnHidden = session.waitUntil(
+                        "const btn = document.querySelector(arguments[0]); return btn === null || btn.offsetParent === null;",
+                        Duration.ofSeconds(120),
+                        LOGIN_BUTTON
+                );
                 if (isLoginBtnHidden) {
                     LOGGER.info("登录成功");
                     Thread.sleep(1000);
                     break;
                 }
 
-            } catch (TimeoutException _) {
                 LOGGER.info("正在重新获取二维码，旧二维码还有大约 60s 有效时间");
+
             } catch (InterruptedException e) {
-                ChromeUtil.quitDriver(driver);
+                Thread.currentThread().interrupt();
+                return;
             }
         }
 
         // 保存 Cookies
-        ChromeUtil.saveCookies(driver, homepageUrl);
+        ChromeUtil.saveCookies(session, homepageUrl);
 
     }
 
@@ -0,0 +1,156 @@
+package yfrp.autobili.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import yfrp.autobili.browser.BrowserSession;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * 登录会话
+ * <p>
+ * 记录评论账号的登录状态，登录失效时在独立的虚拟线程中完成扫码登录，不阻塞调用方。
+ * 依赖登录状态的评论在状态恢复为 {@link State#VALID} 前暂停，搜索与流水线的资格检查继续执行
+ */
+public class LoginSession implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LoginSession.class);
+
+    // 关闭时等待登录线程结束的最长时间
+    private static final Duration CLOSE_TIMEOUT = Duration.ofSeconds(2);
+
+    /**
+     * 登录状态
+     */
+    public enum State {
+        // 已登录，或尚未发现登录失效
+        VALID,
+        // 登录失效，正在获取登录二维码
+        REFRESHING,
+        // 已输出登录二维码，等待扫码
+        AWAITING_SCAN
+    }
+
+    // 主页 URL
+    private final String homepageUrl;
+
+    // 当前登录状态
+    private volatile State state = State.VALID;
+    // 进入当前状态的时间
+    private volatile Instant since = Instant.now();
+    // 登录线程，未在登录时为 null
+    private Thread thread;
+
+    /**
+     * 构造函数
+     *
+     * @param homepageUrl 主页 URL
+     */
+    public LoginSession(String homepageUrl) {
+        this.homepageUrl = homepageUrl;
+    }
+
+    /**
+     * 获取当前登录状态
+     *
+     * @return 登录状态
+     */
+    public State state() {
+        return state;
+    }
+
+    /**
+     * 是否已登录
+     *
+     * @return 是否已登录
+     */
+    public boolean isValid() {
+        return state == State.VALID;
+    }
+
+    /**
+     * 登录失效，在后台使用指定的浏览器会话扫码登录
+     * <p>
+     * 已在登录中时忽略。登录期间该浏览器由登录线程独占，调用方在状态恢复为 {@link State#VALID} 前不应使用。
+     * 登录因浏览器异常中断时同样恢复为 {@link State#VALID}，由下一次评论重新检测登录状态
+     *
+     * @param session 浏览器会话
+     * @param reason  失效原因，用于日志
+     */
+    public synchronized void invalidate(BrowserSession session,
+                                        String reason) {
+        if (thread != null) {
+            return;
+        }
+
+        LOGGER.warn("登录已失效 ({})，开始扫码登录，评论暂停", reason);
+        setState(State.REFRESHING);
+        thread = Thread.ofVirtual().name("Login").start(() -> {
+            try {
+                Login.loginHeadless(session, homepageUrl, this::setState);
+            } catch (RuntimeException e) {
+                LOGGER.error("扫码登录中断，将在下次评论时重新检测登录状态", e);
+            } finally {
+                finish();
+            }
+        });
+    }
+
+    /**
+     * 获取登录状态，用于状态日志
+     *
+     * @return 登录状态描述
+     */
+    public String describe() {
+        return switch (state) {
+            case VALID -> "登录 VALID";
+            case REFRESHING, AWAITING_SCAN -> "登录 %s %ds".formatted(
+                    state, Duration.between(since, Instant.now()).toSeconds());
+        };
+    }
+
+    /**
+     * 停止正在进行的登录
+     * <p>
+     * 须在关闭登录使用的浏览器之前调用
+     */
+    @Override
+    public void close() {
+        Thread current;
+        synchronized (this) {
+            current = thread;
+        }
+        if (current == null) {
+            return;
+        }
+
+        current.interrupt();
+        try {
+            current.join(CLOSE_TIMEOUT);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 登录线程结束，恢复为已登录状态
+     */
+    private synchronized void finish() {
+        thread = null;
+        setState(State.VALID);
+    }
+
+    /**
+     * 设置登录状态
+     *
+     * @param newState 登录状态
+     */
+    private void setState(State newState) {
+        if (state != newState) {
+            state = newState;
+            since = Instant.now();
+        }
+    }
+
+}
@@ -0,0 +1,297 @@
+package yfrp.autobili.util;
+
+import io.github.bonigarcia.wdm.WebDriverManager;
+import org.jetbrains.annotations.Nullable;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.json.Json;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 共享浏览器
+ * <p>
+ * 启动一个带调试端口的 Chrome 进程，供多个驱动以独立的浏览器上下文连接，
+ * 各上下文拥有独立的 Cookies 与标签页
+ */
+class SharedBrowser implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SharedBrowser.class);
+
+    /**
+     * 浏览器上下文
+     *
+     * @param contextId 浏览器上下文编号
+     * @param targetId  上下文中的标签页编号，即驱动的窗口句柄
+     */
+    record Context(String contextId,
+                   String targetId) {
+    }
+
+    // 等待浏览器调试端口就绪的超时时间
+    private static final Duration STARTUP_TIMEOUT = Duration.ofSeconds(30);
+
+    // 浏览器实例编号
+    private final int instanceId;
+    // 浏览器进程
+    private final Process process;
+    // 临时用户数据目录
+    private final Path userDataDir;
+    // 调试端口
+    private final int port;
+    // 浏览器级 CDP 连接
+    private final CdpConnection cdp;
+
+    // 停用原因，停用后不再创建新的上下文，未停用时为 null
+    private volatile String retireReason;
+
+    private SharedBrowser(int instanceId,
+                          Process process,
+                          Path userDataDir,
+                          int port,
+                          CdpConnection cdp) {
+
+        this.instanceId = instanceId;
+        this.process = process;
+        this.userDataDir = userDataDir;
+        this.port = port;
+        this.cdp = cdp;
+    }
+
+    /**
+     * 启动共享浏览器
+     *
+     * @param instanceId 浏览器实例编号
+     * @param arguments  浏览器启动参数
+     * @return 共享浏览器
+     */
+    static SharedBrowser launch(int instanceId,
+                                List<String> arguments) {
+
+        var browserPath = Optional.ofNullable(DriverBinaries.getBrowserPath())
+                .or(() -> WebDriverManager.chromedriver().getBrowserPath())
+                .orElseThrow(() -> new WebDriverException("未找到 Chrome 浏览器"));
+
+        Process process = null;
+        Path userDataDir = null;
+        try {
+            var port = findFreePort();
+            userDataDir = Files.createTempDirectory("autobili-shared-");
+
+            var command = new ArrayList<String>();
+            command.add(browserPath.toString());
+            command.addAll(arguments);
+            command.add("--remote-debugging-port=" + port);
+            command.add("--user-data-dir=" + userDataDir);
+            command.add(DriverStats.INSTANCE_SWITCH + instanceId);
+            command.add("about:blank");
+
+            process = new ProcessBuilder(command)
+                    .redirectErrorStream(true)
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                    .start();
+
+            var webSocketUrl = awaitDebuggerUrl(port);
+            return new SharedBrowser(instanceId, process, userDataDir, port, new CdpConnection(webSocketUrl));
+
+        } catch (IOException | RuntimeException e) {
+            if (process != null) {
+                process.destroyForcibly();
+            }
+            deleteDirectory(userDataDir);
+            throw new WebDriverException("共享浏览器启动失败", e);
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            process.destroyForcibly();
+            deleteDirectory(userDataDir);
+            throw new WebDriverException("共享浏览器启动被中断", e);
+        }
+    }
+
+    /**
+     * 获取浏览器实例编号
+     *
+     * @return 浏览器实例编号
+     */
+    int getInstanceId() {
+        return instanceId;
+    }
+
+    /**
+     * 获取调试地址，供驱动连接
+     *
+     * @return 调试地址
+     */
+    String getDebuggerAddress() {
+        return "127.0.0.1:" + port;
+    }
+
+    /**
+     * 检查浏览器进程是否存活
+     *
+     * @return 是否存活
+     */
+    boolean isAlive() {
+        return process.isAlive();
+    }
+
+    /**
+     * 停用浏览器
+     * <p>
+     * 停用后不再在其中创建新的上下文，已有上下文的驱动回收后迁移到新的共享浏览器
+     *
+     * @param reason 停用原因
+     */
+    void retire(String reason) {
+        retireReason = reason;
+    }
+
+    /**
+     * 获取停用原因
+     *
+     * @return 停用原因，未停用时返回 null
+     */
+    @Nullable
+    String getRetireReason() {
+        return retireReason;
+    }
+
+    /**
+     * 创建独立的浏览器上下文，并在其中打开一个空白标签页
+     *
+     * @return 浏览器上下文
+     */
+    Context createContext() {
+
+        var contextId = (String) cdp.send("Target.createBrowserContext", Map.of())
+                .get("browserContextId");
+        try {
+            var targetId = (String) cdp.send("Target.createTarget", Map.of(
+                    "url", "about:blank",
+                    "browserContextId", contextId
+            )).get("targetId");
+
+            return new Context(contextId, targetId);
+
+        } catch (RuntimeException e) {
+            disposeContext(contextId);
+            throw e;
+        }
+    }
+
+    /**
+     * 销毁浏览器上下文及其所有标签页
+     *
+     * @param contextId 浏览器上下文编号
+     */
+    void disposeContext(String contextId) {
+        try {
+            cdp.send("Target.disposeBrowserContext", Map.of("browserContextId", contextId));
+        } catch (Exception e) {
+            LOGGER.debug("销毁浏览器上下文 {} 失败: {}", contextId, e.getMessage());
+        }
+    }
+
+    /**
+     * 关闭浏览器进程并删除临时用户数据目录
+     */
+    @Override
+    public void close() {
+        cdp.close();
+
+        process.descendants().forEach(ProcessHandle::destroy);
+        process.destroy();
+        try {
+            if (!process.waitFor(5, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+        } catch (InterruptedException e) {
+            process.destroyForcibly();
+            Thread.currentThread().interrupt();
+        }
+
+        deleteDirectory(userDataDir);
+        LOGGER.info("共享浏览器已关闭");
+    }
+
+    /**
+     * 等待浏览器调试端口就绪
+     *
+     * @param port 调试端口
+     * @return 浏览器调试 WebSocket 地址
+     * @throws InterruptedException 线程中断异常
+     */
+    private static URI awaitDebuggerUrl(int port)
+            throws InterruptedException {
+
+        var request = HttpRequest.newBuilder()
+                .uri(URI.create("http://127.0.0.1:" + port + "/json/version"))
+                .timeout(Duration.ofSeconds(2))
+                .GET()
+                .build();
+        var deadline = System.nanoTime() + STARTUP_TIMEOUT.toNanos();
+
+        try (var client = HttpClient.newHttpClient()) {
+            while (System.nanoTime() < deadline) {
+                try {
+                    var response = client.send(request, HttpResponse.BodyHandlers.ofString());
+                    Map<String, Object> version = new Json().toType(response.body(), Json.MAP_TYPE);
+                    return URI.create((String) version.get("webSocketDebuggerUrl"));
+                } catch (IOException _) {
+                    Thread.sleep(100);
+                }
+            }
+        }
+
+        throw new WebDriverException("等待共享浏览器调试端口超时");
+    }
+
+    /**
+     * 查找空闲端口
+     *
+     * @return 空闲端口
+     * @throws IOException IO 异常
+     */
+    private static int findFreePort()
+            throws IOException {
+
+        try (var socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    /**
+     * 删除目录及其内容
+     *
+     * @param dir 目录
+     */
+    private static void deleteDirectory(Path dir) {
+        if (dir == null || Files.notExists(dir)) {
+            return;
+        }
+
+        try (var paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder())
+                    .forEach(p -> p.toFile().delete());
+        } catch (IOException e) {
+            LOGGER.warn("删除临时目录 {} 失败", dir);
+        }
+    }
+
+}
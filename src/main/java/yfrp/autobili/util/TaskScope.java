@@ -0,0 +1,123 @@
+package yfrp.autobili.util;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 结构化任务作用域
+ * <p>
+ * 每个子任务运行在独立的虚拟线程中，子任务的生命周期不超过作用域：
+ * 任一子任务失败、等待超时或等待线程被中断时，中断其余子任务，关闭作用域时等待所有子任务结束。
+ * 用法与 StructuredTaskScope 相同：fork → join → 读取结果，在 try-with-resources 中使用
+ */
+public class TaskScope implements AutoCloseable {
+
+    // 子任务执行器，每个子任务一个虚拟线程
+    private final ExecutorService executor;
+    // 已提交的子任务
+    private final List<Future<?>> subtasks = new CopyOnWriteArrayList<>();
+
+    /**
+     * 构造函数
+     *
+     * @param name 子任务线程名称前缀
+     */
+    public TaskScope(String name) {
+        this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name + "-", 0).factory());
+    }
+
+    /**
+     * 提交子任务
+     *
+     * @param task 子任务
+     * @param <T>  结果类型
+     * @return 子任务句柄，{@link #join(Duration)} 成功后可直接读取结果
+     */
+    public <T> Future<T> fork(Callable<T> task) {
+        var future = new FutureTask<>(task) {
+            @Override
+            protected void setException(Throwable t) {
+                super.setException(t);
+                // 失败时立即中断其余子任务，无需等待 join 轮到该子任务
+                cancelAll();
+            }
+        };
+        subtasks.add(future);
+        executor.execute(future);
+        return future;
+    }
+
+    /**
+     * 等待所有子任务完成
+     * <p>
+     * 任一子任务失败时立即中断其余子任务并抛出该异常
+     *
+     * @param timeout 最长等待时间，从调用时开始计算
+     * @throws ExecutionException   子任务失败
+     * @throws TimeoutException     超时，其余子任务已被中断
+     * @throws InterruptedException 等待线程被中断，其余子任务已被中断
+     */
+    public void join(Duration timeout)
+            throws ExecutionException,
+                   TimeoutException,
+                   InterruptedException {
+
+        var deadline = System.nanoTime() + timeout.toNanos();
+        try {
+            for (var subtask : subtasks) {
+                try {
+                    subtask.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                } catch (CancellationException e) {
+                    // 被失败的子任务取消，抛出导致取消的异常
+                    throw failure(e);
+                }
+            }
+        } catch (ExecutionException | TimeoutException | InterruptedException e) {
+            cancelAll();
+            throw e;
+        }
+    }
+
+    /**
+     * 获取第一个失败子任务的异常
+     *
+     * @param cause 未找到失败子任务时使用的异常
+     * @return 子任务失败异常
+     */
+    private ExecutionException failure(Throwable cause) {
+        return subtasks.stream()
+                .filter(subtask -> subtask.state() == Future.State.FAILED)
+                .findFirst()
+                .map(subtask -> new ExecutionException(subtask.exceptionNow()))
+                .orElseGet(() -> new ExecutionException(cause));
+    }
+
+    /**
+     * 中断所有未完成的子任务
+     */
+    private void cancelAll() {
+        subtasks.forEach(subtask -> subtask.cancel(true));
+    }
+
+    /**
+     * 关闭作用域
+     * <p>
+     * 中断未完成的子任务并等待其结束
+     */
+    @Override
+    public void close() {
+        cancelAll();
+        executor.close();
+    }
+
+}
@@ -0,0 +1,30 @@
+package yfrp.autobili.util;
+
+import jdk.management.VirtualThreadSchedulerMXBean;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * 虚拟线程工具类
+ * <p>
+ * 用于观察虚拟线程调度器的载体线程使用情况：阻塞在 Selenium 或 HttpClient 调用中的虚拟线程不占用载体线程，
+ * 载体线程数持续高于并行度时，说明有虚拟线程在本地调用中固定了载体线程
+ */
+public class VirtualThreads {
+
+    /**
+     * 获取虚拟线程调度器状态，用于状态日志
+     *
+     * @return 调度器状态描述
+     */
+    public static String describe() {
+        var scheduler = ManagementFactory.getPlatformMXBean(VirtualThreadSchedulerMXBean.class);
+        return "载体线程 %d (并行度 %d), 运行中虚拟线程 %d, 排队 %d".formatted(
+                scheduler.getPoolSize(),
+                scheduler.getParallelism(),
+                scheduler.getMountedVirtualThreadCount(),
+                scheduler.getQueuedVirtualThreadCount()
+        );
+    }
+
+}
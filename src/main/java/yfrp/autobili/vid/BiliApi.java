@@ -7,6 +7,7 @@ import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.util.Set;
 import java.util.regex.Pattern;
 
 /**
@@ -18,6 +19,11 @@ public class BiliApi {
 
     // 发布时间正则表达式模式
     private static final Pattern pubdatePattern = Pattern.compile("\"pubdate\":(\\d+),");
+    // 接口返回 code 正则表达式模式
+    private static final Pattern codePattern = Pattern.compile("^\\{\"code\":(-?\\d+)");
+
+    // 请求被拦截 (-412)、请求过于频繁 (-509)
+    private static final Set<Integer> RATE_LIMIT_CODES = Set.of(-412, -509);
 
     /**
      * 获取视频信息
@@ -26,6 +32,7 @@ public class BiliApi {
      *
      * @param url 视频信息 API URL
      * @return API 返回的 JSON 响应字符串
+     * @throws RateLimitedException 请求被限流
      * @throws IOException          IO 异常
      * @throws InterruptedException 线程中断异常
      */
@@ -42,8 +49,18 @@ public class BiliApi {
                     .build();
             // 发送请求并获取响应
             var response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() == 412) {
+                throw new RateLimitedException("视频信息接口请求被拦截 (HTTP 412)");
+            }
+
+            // 检查接口返回的 code
+            var body = response.body();
+            var matcher = codePattern.matcher(body);
+            if (matcher.find() && RATE_LIMIT_CODES.contains(NumberUtils.toInt(matcher.group(1)))) {
+                throw new RateLimitedException("视频信息接口返回 " + matcher.group(1));
+            }
 
-            return response.body();
+            return body;
         }
     }
 
@@ -53,6 +70,7 @@ public class BiliApi {
      *
      * @param url 视频 API URL
      * @return 视频发布时间戳（秒），如果获取失败返回 -1
+     * @throws RateLimitedException 请求被限流
      * @throws IOException          IO 异常
      * @throws InterruptedException 线程中断异常
      */
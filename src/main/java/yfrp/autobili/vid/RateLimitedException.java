@@ -0,0 +1,22 @@
+package yfrp.autobili.vid;
+
+import java.io.IOException;
+
+/**
+ * 限流异常
+ * <p>
+ * 当 Bilibili API 拦截请求 (HTTP 412) 或返回请求过于频繁的 code 时抛出此异常
+ */
+public class RateLimitedException
+        extends IOException {
+
+    /**
+     * 构造一个带消息的限流异常
+     *
+     * @param message 异常消息
+     */
+    public RateLimitedException(String message) {
+        super(message);
+    }
+
+}
@@ -1,47 +1,69 @@
 package yfrp.autobili.vid;
 
-import org.openqa.selenium.By;
 import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.WebDriverException;
-import org.openqa.selenium.WebElement;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import yfrp.autobili.browser.BrowserSession;
+import yfrp.autobili.browser.SeleniumBrowserSession;
+import yfrp.autobili.util.BackoffController;
 import yfrp.autobili.util.ChromeUtil;
+import yfrp.autobili.util.DriverPool;
+import yfrp.autobili.util.DriverWatchdog;
 import yfrp.autobili.config.Config;
 
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Random;
+import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
- * 搜索工作线程类
+ * 搜索工作器
  * <p>
  * 负责根据关键词搜索视频，并将搜索到的视频添加到待评论视频池中
  */
-public class SearchWorker implements Runnable {
+public class SearchWorker {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(SearchWorker.class);
 
+    // 近期已入池视频的去重窗口（毫秒）
+    private static final long SEEN_TTL = 30 * 60 * 1000L;
+
+    // 视频卡片链接选择器
+    private static final String VIDEO_LINK_SELECTOR = "a[href*='/video/BV']";
+    // 等待搜索结果出现的超时时间
+    private static final Duration RESULT_TIMEOUT = Duration.ofSeconds(10);
+
+    // JavaScript 脚本：获取所有匹配选择器的链接
+    private static final String SCRIPT_VIDEO_LINKS =
+            "return Array.from(document.querySelectorAll(arguments[0]), a => a.href);";
+
     // 系统配置
     private final Config config;
     // 待评论视频池
     private final VidPool toComment;
     // 已评论视频池
     private final VidPool commented;
+    // 风控退避控制器
+    private final BackoffController backoff;
 
-    // 搜索关键词列表实例
-    private final List<String> keywords;
     // 当前关键词索引
-    private int keywordIndex = 0;
+    private volatile int keywordIndex = 0;
+    // 近期已入池的视频及其入池时间，按入池顺序排列
+    private final Map<String, Long> recentlySeen = new LinkedHashMap<>();
 
     // 是否接受新任务
     private volatile boolean accepting = true;
-    // 工作线程
-    private volatile Thread workerThread;
     // WebDriver 实例
     private WebDriver driver;
+    // 浏览器会话
+    private SeleniumBrowserSession session;
+    // 浏览器驱动池
+    private final DriverPool driverPool;
 
     /**
      * 构造函数
@@ -49,62 +71,73 @@ public class SearchWorker implements Runnable {
      * @param config    系统配置
      * @param toComment 待评论视频池
      * @param commented 已评论视频池
+     * @param backoff   风控退避控制器
      */
     public SearchWorker(Config config,
                         VidPool toComment,
-                        VidPool commented) {
+                        VidPool commented,
+                        BackoffController backoff) {
 
         this.config = config;
         this.toComment = toComment;
         this.commented = commented;
-        this.keywords = config.getSearchKeywordsInstance();
+        this.backoff = backoff;
 
-        LOGGER.info("搜索浏览器已启动");
+        this.driverPool = new DriverPool(
+                "搜索浏览器",
+                "Search-Driver-Standby",
+                this::launchDriver,
+                config.isWarmStandby()
+        );
     }
 
     /**
-     * 工作线程主循环
+     * 预先启动搜索浏览器
      * <p>
-     * 负责根据关键词搜索视频
+     * 可在调度开始前调用，与其他初始化任务并行执行
      */
-    @Override
-    public void run() {
-        launchDriver();
-        this.workerThread = Thread.currentThread();
+    public void prepare() {
+        acquireDriver();
+    }
 
-        while (accepting) {
-            try {
-                // 重新加载配置
-                config.loadConfig();
+    /**
+     * 执行一轮搜索
+     * <p>
+     * 由调度器按搜索间隔调用，根据下一个关键词搜索视频
+     */
+    public void tick() {
+        if (!accepting) {
+            return;
+        }
+
+        // 风控退避期间不做浏览器操作
+        if (backoff.isActive()) {
+            LOGGER.debug("风控退避中，跳过本轮搜索 | {}", backoff.describe());
+            return;
+        }
+
+        try {
+            // 浏览器不可用时重新租借，仍不可用则等待下一轮
+            if (driver != null || acquireDriver()) {
+                // 浏览器资源占用过高时，在任务开始前回收
+                recycleDriverIfNeeded();
                 // 获取下一个关键词
                 String keyword = nextKeyword();
                 // 执行一次搜索
-                searchOnce(keyword);
-
-            } catch (WebDriverException e) {
-                if (accepting) {
-                    LOGGER.warn("搜索浏览器被关闭，尝试恢复: {}", e.getMessage());
-                    recoverDriver();
-                }
-
-            } catch (Exception e) {
-                if (accepting) {
-                    LOGGER.error("搜索线程异常", e);
-                }
+                searchOnce(session, keyword);
             }
 
-            try {
-                // 等待下一次搜索
-                Thread.sleep(config.getSearchInterval() *
-                             new Random().nextLong(750, 1251));
+        } catch (WebDriverException e) {
+            if (accepting) {
+                LOGGER.warn("搜索浏览器被关闭，尝试恢复: {}", e.getMessage());
+                recoverDriver();
+            }
 
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                break;
+        } catch (Exception e) {
+            if (accepting) {
+                LOGGER.error("搜索任务异常", e);
             }
         }
-
-        close();
     }
 
     /**
@@ -113,76 +146,161 @@ public class SearchWorker implements Runnable {
      * 当浏览器出现异常时，关闭当前浏览器并重新启动
      */
     private synchronized void recoverDriver() {
-        close();
-        launchDriver();
-        LOGGER.info("搜索浏览器已恢复");
+        try {
+            // 先在旧浏览器退出前取消其会话的事件订阅
+            var failed = driver;
+            setDriver(null);
+            setDriver(driverPool.replace(failed));
+            LOGGER.info("搜索浏览器已恢复");
+        } catch (Exception e) {
+            setDriver(null);
+            LOGGER.error("搜索浏览器启动失败", e);
+        }
     }
 
     /**
-     * 启动搜索浏览器
+     * 回收资源占用过高的浏览器
+     * <p>
+     * 在任务间隙检查，避免浏览器在任务中途崩溃
      */
-    private void launchDriver() {
+    private synchronized void recycleDriverIfNeeded() {
+        var reason = DriverWatchdog.checkRecycle(driver, config.getRecycleThresholds());
+        if (reason != null) {
+            LOGGER.info("回收搜索浏览器: {}", reason);
+            recoverDriver();
+        }
+    }
+
+    /**
+     * 从驱动池租借搜索浏览器
+     *
+     * @return 是否租借成功
+     */
+    private synchronized boolean acquireDriver() {
         try {
-            driver = ChromeUtil.getHeadlessDriver();
-            driver.get(config.getUrlHomepage());
+            setDriver(driverPool.lease());
+            LOGGER.info("搜索浏览器已启动");
+            return true;
         } catch (Exception e) {
+            setDriver(null);
             LOGGER.error("搜索浏览器启动失败", e);
+            return false;
         }
     }
 
+    /**
+     * 设置当前浏览器及其会话
+     *
+     * @param newDriver 浏览器，可为 null
+     */
+    private void setDriver(WebDriver newDriver) {
+        if (session != null) {
+            session.close();
+        }
+        driver = newDriver;
+        session = newDriver != null ? new SeleniumBrowserSession(newDriver) : null;
+    }
+
+    /**
+     * 启动搜索浏览器
+     *
+     * @return 已打开主页的浏览器
+     */
+    private WebDriver launchDriver() {
+        var newDriver = ChromeUtil.getHeadlessDriver(config.getSearchProfileDir());
+        try {
+            ChromeUtil.blockRequests(newDriver, config.getSearchBlockedUrls());
+            ChromeUtil.navigate(newDriver, config.getUrlHomepage());
+        } catch (RuntimeException e) {
+            ChromeUtil.quitDriver(newDriver);
+            throw e;
+        }
+        return newDriver;
+    }
+
     /**
      * 执行一次搜索
      * <p>
      * 根据关键词搜索视频，并将搜索到的视频添加到待评论视频池中
      *
+     * @param session 浏览器会话
      * @param keyword 搜索关键词
-     * @throws InterruptedException 线程中断异常
      */
-    private void searchOnce(String keyword)
-            throws InterruptedException {
+    public void searchOnce(BrowserSession session,
+                           String keyword) {
 
         LOGGER.info("开始搜索关键词 '{}'", keyword);
 
         // 构建搜索 URL
-        driver.get(config.getUrlSearch(keyword));
+        session.navigate(config.getUrlSearch(keyword));
 
-        // 等待页面加载
-        Thread.sleep(3000);
+        // 等待搜索结果出现
+        if (!session.waitFor(VIDEO_LINK_SELECTOR, RESULT_TIMEOUT)) {
+            LOGGER.warn("关键词 '{}' 的搜索结果未在 {}s 内出现", keyword, RESULT_TIMEOUT.toSeconds());
+        }
 
         // 提取搜索结果中的视频 BV 号
-        var bvids = extractBVIDs(driver);
-        // 过滤掉已评论的视频，并添加到待评论视频池
-        bvids.stream()
-                .filter(bv -> !commented.hasVid(bv))
-                .forEach(toComment::add);
-        // 保存待评论视频池
-        toComment.saveVideos();
-
-        LOGGER.info("根据关键词 '{}' 搜索到 {} 个视频 | 待评论: {}, 已处理: {}",
+        var bvids = extractBVIDs(session);
+
+        // 过滤掉近期已入池和已评论的视频，并添加到待评论视频池
+        expireSeen();
+        var now = System.currentTimeMillis();
+        var added = 0;
+        for (var bvid : bvids) {
+            if (recentlySeen.putIfAbsent(bvid, now) != null) {
+                continue;
+            }
+            if (!commented.hasVid(bvid) && toComment.add(bvid)) {
+                added++;
+            }
+        }
+
+        // 有新视频时保存待评论视频池
+        if (added > 0) {
+            toComment.saveVideos();
+        }
+
+        LOGGER.info("根据关键词 '{}' 搜索到 {} 个视频，新增 {} 个 | 待评论: {}, 已处理: {}",
                 keyword,
                 bvids.size(),
+                added,
                 toComment.size(),
                 commented.size()
         );
     }
 
+    /**
+     * 清除超出去重窗口的视频记录
+     */
+    private void expireSeen() {
+        var expireBefore = System.currentTimeMillis() - SEEN_TTL;
+
+        Iterator<Long> it = recentlySeen.values().iterator();
+        while (it.hasNext() && it.next() < expireBefore) {
+            it.remove();
+        }
+    }
+
     /**
      * 提取 BVID 的方法
      * <p>
      * 从搜索结果页面中提取所有视频的 BV 号
      *
-     * @param driver WebDriver 实例
+     * @param session 浏览器会话
      * @return 视频 BV 号列表
      */
-    public static List<String> extractBVIDs(WebDriver driver) {
+    @SuppressWarnings("unchecked")
+    public static List<String> extractBVIDs(BrowserSession session) {
         List<String> bvids = new ArrayList<>();
         Pattern pattern = Pattern.compile("BV[a-zA-Z0-9]+");
 
-        // 查找所有视频卡片链接
-        List<WebElement> videoLinks = driver.findElements(By.cssSelector("a[href*='/video/BV']"));
+        // 一次脚本调用取回所有视频卡片链接，避免逐个元素往返
+        var videoLinks = (List<String>) session.executeScript(SCRIPT_VIDEO_LINKS, VIDEO_LINK_SELECTOR);
+        if (videoLinks == null) {
+            return bvids;
+        }
 
-        for (WebElement link : videoLinks) {
-            String href = link.getAttribute("href");
+        for (String href : videoLinks) {
             if (href != null) {
                 Matcher matcher = pattern.matcher(href);
                 if (matcher.find()) {
@@ -208,34 +326,53 @@ public class SearchWorker implements Runnable {
      * @return 下一个关键词
      */
     private String nextKeyword() {
+        // 每次读取最新的关键词列表，重载配置后立即生效
+        var keywords = config.getSearchKeywordsInstance();
         if (keywords.isEmpty()) {
             throw new IllegalStateException("搜索关键词为空");
         }
 
-        String keyword = keywords.get(keywordIndex);
-        keywordIndex = (keywordIndex + 1) % keywords.size();
-        return keyword;
+        // 重载配置后关键词数量可能减少
+        var index = keywordIndex % keywords.size();
+        keywordIndex = (index + 1) % keywords.size();
+        return keywords.get(index);
+    }
+
+    /**
+     * 获取下一个关键词的索引，用于保存运行检查点
+     *
+     * @return 关键词索引
+     */
+    public int getKeywordIndex() {
+        return keywordIndex;
     }
 
     /**
-     * 关闭工作线程
+     * 从运行检查点恢复关键词索引
+     *
+     * @param keywordIndex 关键词索引
      */
-    public void shutdown() {
+    public void setKeywordIndex(int keywordIndex) {
+        this.keywordIndex = Math.max(keywordIndex, 0);
+    }
+
+    /**
+     * 停止接受新任务，进行中的一轮搜索继续执行
+     */
+    public void stopAccepting() {
         accepting = false;
-        close();
-        if (workerThread != null) {
-            workerThread.interrupt();
-        }
     }
 
     /**
      * 关闭浏览器
      */
     public synchronized void close() {
+        driverPool.close();
         if (driver != null) {
             try {
-                ChromeUtil.quitDriver(driver);
-                driver = null;
+                var released = driver;
+                setDriver(null);
+                driverPool.release(released);
                 LOGGER.info("搜索浏览器已关闭");
             } catch (Exception _) {
             }
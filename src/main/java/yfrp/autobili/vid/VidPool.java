@@ -11,13 +11,17 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 import java.util.function.Function;
 
 /**
  * 视频池类
  * <p>
- * 用于管理视频 BVID 的集合，支持添加、删除、查询、保存和加载等操作
+ * 用于管理视频 BVID 的集合，支持添加、删除、查询、保存和加载等操作。
+ * 新视频加入时通知已注册的监听器，从文件加载的视频不触发通知
  */
 public class VidPool {
 
@@ -27,6 +31,10 @@ public class VidPool {
     private final String filename;
     // 用于保护文件 IO 操作的锁对象
     private final Object fileLock = new Object();
+    // 自上次保存或加载以来视频池是否被修改
+    private final AtomicBoolean dirty = new AtomicBoolean(false);
+    // 新视频加入监听器
+    private final List<Consumer<String>> listeners = new CopyOnWriteArrayList<>();
 
     /**
      * 构造函数
@@ -51,6 +59,17 @@ public class VidPool {
     }
 
 
+    /**
+     * 注册新视频加入监听器
+     * <p>
+     * 监听器在添加视频的线程中同步调用，不应阻塞
+     *
+     * @param listener 监听器，参数为新加入的视频 BVID
+     */
+    public void addListener(Consumer<String> listener) {
+        listeners.add(listener);
+    }
+
     /**
      * 根据条件删除视频
      *
@@ -63,8 +82,12 @@ public class VidPool {
             return false;
         }
 
-        return vidMap.entrySet()
+        var removed = vidMap.entrySet()
                 .removeIf(filter::apply);
+        if (removed) {
+            dirty.set(true);
+        }
+        return removed;
     }
 
     /**
@@ -103,20 +126,44 @@ public class VidPool {
      * @param info 视频信息
      */
     public void put(String bvid, String info) {
-        if (bvid != null) {
-            vidMap.put(bvid, info);
+        if (bvid == null) {
+            return;
+        }
+
+        var previous = vidMap.put(bvid, info);
+        if (!Objects.equals(previous, info)) {
+            dirty.set(true);
+        }
+        if (previous == null) {
+            notifyAdded(bvid);
         }
     }
 
     /**
      * 添加视频 BVID 到视频池
+     * <p>
+     * 已存在的视频保持原有信息不变
      *
      * @param bvid 视频 BVID
+     * @return 是否为新添加的视频
      */
-    public void add(String bvid) {
-        if (bvid != null) {
-            vidMap.put(bvid, "");
+    public boolean add(String bvid) {
+        if (bvid == null || vidMap.putIfAbsent(bvid, "") != null) {
+            return false;
         }
+
+        dirty.set(true);
+        notifyAdded(bvid);
+        return true;
+    }
+
+    /**
+     * 通知监听器有新视频加入
+     *
+     * @param bvid 视频 BVID
+     */
+    private void notifyAdded(String bvid) {
+        listeners.forEach(listener -> listener.accept(bvid));
     }
 
     /**
@@ -130,7 +177,9 @@ public class VidPool {
         }
 
         for (String bvid : bvids) {
-            vidMap.remove(bvid);
+            if (vidMap.remove(bvid) != null) {
+                dirty.set(true);
+            }
         }
     }
 
@@ -159,11 +208,18 @@ public class VidPool {
 
     /**
      * 保存视频池到文件
+     * <p>
+     * 视频池自上次保存或加载以来未被修改时不写入文件
      */
     public void saveVideos() {
 
         synchronized (fileLock) {
 
+            // 先清除标记，写入期间的修改会重新标记并在下次保存
+            if (!dirty.compareAndSet(true, false)) {
+                return;
+            }
+
             try (FileWriter fileWriter = new FileWriter(filename);
                  BufferedWriter bufferedWriter = new BufferedWriter(fileWriter)) {
 
@@ -173,6 +229,7 @@ public class VidPool {
                 }
 
             } catch (IOException e) {
+                dirty.set(true);
                 throw new RuntimeException(e);
             }
         }
@@ -202,6 +259,9 @@ public class VidPool {
             try {
                 List<String> lines = Files.readAllLines(path);
                 vidMap.clear();
+                // 含有旧格式记录时保持修改标记，以便下次保存时升级为 v3 格式
+                dirty.set(lines.stream()
+                        .anyMatch(line -> line != null && !line.isBlank() && !line.startsWith("v3|")));
 
                 if (lines.isEmpty()) {
                     return;